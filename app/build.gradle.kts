@@ -1,3 +1,9 @@
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.util.Properties
+import java.util.zip.GZIPOutputStream
+import javax.inject.Inject
+
 plugins {
 	application
 }
@@ -22,11 +28,100 @@ dependencies {
 	implementation("commons-io:commons-io:2.11.0")
 	implementation("org.apache.commons:commons-lang3:3.12.0")
 	implementation("com.formdev:flatlaf:2.4")
+
+	testImplementation("org.junit.jupiter:junit-jupiter:5.8.2")
+	testRuntimeOnly("org.junit.platform:junit-platform-launcher:1.8.2")
+}
+
+tasks.test {
+	useJUnitPlatform()
 }
 
 application {
 	mainClass.set("link.infra.packwiz.vanillainstaller.VanillaInstaller")
 }
 
+// Snapshot of the loader version catalogs bundled in the jar, so version lists show up straight away (and offline)
+// before they're revalidated; kept between builds unless run with -PrefreshMetadataSnapshot
+val generateMetadataSnapshot = tasks.register("generateMetadataSnapshot") {
+	group = "build"
+	description = "Downloads the loader version catalogs to bundle in the jar"
+	// Names must match the ones the metadata getters look for
+	val sources = mapOf(
+		"fabric-game" to "https://meta.fabricmc.net/v2/versions/game",
+		"fabric-yarn" to "https://meta.fabricmc.net/v2/versions/yarn",
+		"quilt-game" to "https://meta.quiltmc.org/v3/versions/game",
+		"quilt-loader" to "https://meta.quiltmc.org/v3/versions/quilt-mappings",
+		"forge-maven-metadata" to "https://maven.minecraftforge.net/net/minecraftforge/forge/maven-metadata.xml"
+	)
+	val outputDir = layout.buildDirectory.dir("generated/metadataSnapshot")
+	inputs.property("sources", sources)
+	outputs.dir(outputDir)
+	if (project.hasProperty("refreshMetadataSnapshot")) {
+		outputs.upToDateWhen { false }
+	}
+	doLast {
+		val dir = outputDir.get().asFile.resolve("metadata-snapshot")
+		dir.mkdirs()
+		val indexFile = dir.resolve("index.properties")
+		val index = Properties()
+		if (indexFile.exists()) indexFile.inputStream().use { index.load(it) }
+		sources.forEach { (name, url) ->
+			try {
+				val bytes = uri(url).toURL().readBytes()
+				GZIPOutputStream(dir.resolve("$name.gz").outputStream()).use { it.write(bytes) }
+				index.setProperty(name, System.currentTimeMillis().toString())
+			} catch (e: IOException) {
+				// Building offline still works, the installer just has to fetch this one (or use an older snapshot)
+				logger.warn("Couldn't download the $name metadata snapshot: $e")
+			}
+		}
+		indexFile.outputStream().use { index.store(it, "When each snapshot was downloaded") }
+	}
+}
+
+sourceSets {
+	main {
+		resources.srcDir(generateMetadataSnapshot)
+	}
+}
+
+// Cold starts the installer a few times (-Pstartup.runs, default 5) and reports time to first frame and to interactive,
+// from JVM start; needs a display
+interface StartupTimingServices {
+	@get:Inject
+	val exec: ExecOperations
+}
+
+tasks.register("startupTiming") {
+	group = "verification"
+	description = "Measures installer startup times"
+	dependsOn(tasks.classes)
+	val exec = objects.newInstance<StartupTimingServices>().exec
+	val runtimeClasspath = sourceSets.main.get().runtimeClasspath
+	val mainClassName = application.mainClass
+	val resultsFile = layout.buildDirectory.file("startup-timing.jsonl")
+	val runs = (project.findProperty("startup.runs") ?: "5").toString().toInt()
+	outputs.upToDateWhen { false }
+	doLast {
+		val results = (1..runs).map {
+			val output = ByteArrayOutputStream()
+			exec.javaexec {
+				classpath = runtimeClasspath
+				mainClass.set(mainClassName)
+				systemProperty("packwiz.startup.exitWhenInteractive", "true")
+				systemProperty("packwiz.startup.launchedAt", System.currentTimeMillis().toString())
+				standardOutput = output
+			}
+			output.toString().lines().last { it.startsWith("{") }
+		}
+		resultsFile.get().asFile.writeText(results.joinToString("\n", postfix = "\n"))
+		listOf("firstFrame", "interactive").forEach { mark ->
+			val times = results.map { Regex("\"${mark}Millis\":(\\d+)").find(it)!!.groupValues[1].toLong() }.sorted()
+			println("$mark: median ${times[times.size / 2]} ms, min ${times.first()} ms, max ${times.last()} ms")
+		}
+	}
+}
+
 // TODO: META-INF
 // TODO: build fabric-installer-native-bootstrap .exe
\ No newline at end of file
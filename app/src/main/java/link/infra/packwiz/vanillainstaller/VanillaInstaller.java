@@ -1,9 +1,20 @@
 package link.infra.packwiz.vanillainstaller;
 
 import com.formdev.flatlaf.FlatLightLaf;
+import link.infra.packwiz.vanillainstaller.cli.HeadlessInstaller;
+import link.infra.packwiz.vanillainstaller.jfr.FlightRecording;
 import link.infra.packwiz.vanillainstaller.meta.*;
-import link.infra.packwiz.vanillainstaller.util.Debouncer;
+import link.infra.packwiz.vanillainstaller.net.GitHubSource;
+import link.infra.packwiz.vanillainstaller.net.HttpCache;
+import link.infra.packwiz.vanillainstaller.ui.TypeAheadKeySelection;
+import link.infra.packwiz.vanillainstaller.ui.VersionComboBoxModel;
+import link.infra.packwiz.vanillainstaller.ui.WatchdogReportDialog;
+import link.infra.packwiz.vanillainstaller.util.Debug;
+import link.infra.packwiz.vanillainstaller.util.EdtWatchdog;
+import link.infra.packwiz.vanillainstaller.util.InputPipeline;
 import link.infra.packwiz.vanillainstaller.util.PathUtils;
+import link.infra.packwiz.vanillainstaller.util.SingleFlight;
+import link.infra.packwiz.vanillainstaller.util.StartupTimer;
 import link.infra.packwiz.vanillainstaller.util.Tuple;
 import net.fabricmc.installer.Main;
 import org.apache.commons.lang3.StringUtils;
@@ -19,33 +30,41 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.*;
-import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 public class VanillaInstaller {
 	private static final String[] VALID_URL_SCHEMES = {"http", "https", "file", "github"};
-	private static final ArrayList<Tuple<String, Class>> LOADERS = new ArrayList<>(){
-			{
-					add(new Tuple<>("fabric", FabricMetadata.class));
-					add(new Tuple<>("quilt", QuiltMetadata.class));
-					add(new Tuple<>("forge", ForgeMetadata.class));
-			}
-	};
-
+	// How long the default MC version may take before the selection is left as it is
+	private static final long DEFAULT_MC_VERSION_TIMEOUT_MILLIS = 3000;
 	private final UrlValidator urlValidator = new UrlValidator(VALID_URL_SCHEMES);
 	private final PackMetadataRetriever metadataRetriever = new PackMetadataRetriever() {
 		@Override
 		public void onDataUpdated(Data data) {
 			onPackDataLoaded(data);
 		}
+
+		@Override
+		public void onDataFailed(Throwable error) {
+			setLoading(false);
+			setError("Failed to load pack: " + error.getLocalizedMessage());
+		}
 	};
 	private LoaderMetadataGetter loaderMetaGetter = null;
+	private long windowShownAt = 0;
+	private boolean versionsPopulated = false;
+	// Whether the pack loaded, applied to the advanced options too once they're built
+	private boolean valid = false;
 
 	// GUI vars
 	private JFrame mainFrame;
@@ -63,6 +82,12 @@ public class VanillaInstaller {
 	private ButtonGroup loaderGroup;
 	private JComboBox<String> minecraftVersionComboBox;
 	private JComboBox<String> loaderVersionComboBox;
+	private final VersionComboBoxModel minecraftVersionModel = new VersionComboBoxModel();
+	private final VersionComboBoxModel loaderVersionModel = new VersionComboBoxModel();
+	// Set while a version list is swapped in, so the selection change isn't taken for the user's
+	private boolean populatingVersions = false;
+	// Set while reloading lists that changed in the background, so what's selected stays selected
+	private boolean refreshingVersions = false;
 	private JTextField installationNameField;
 	private JButton nextButton;
 	private JTextField launcherPathField;
@@ -71,11 +96,39 @@ public class VanillaInstaller {
 	private final HashMap<String, JRadioButton> loaderRadioButtons = new HashMap<>();
 	private JRadioButton radioButtonLoaderOther;
 
-	private final Debouncer urlDebouncer = new Debouncer(() -> {
-		downloadPackFile(packUrlField.getText());
-	}, 4000);
+	// Every input goes through a latest-wins pipeline, so stale results never overwrite fresh ones
+	private final InputPipeline<String, Void> urlPipeline = new InputPipeline<>(4000, url -> {
+		downloadPackFile(url);
+		return CompletableFuture.completedFuture(null);
+	}, (result, error) -> {});
+	// Lists are indexed for type-ahead in the background, as the longest have thousands of versions
+	private final InputPipeline<LoaderMetadataGetter, VersionComboBoxModel.Versions> mcVersionsPipeline = new InputPipeline<>(0,
+		getter -> getter.getMinecraftVersionsAsync(false) // TODO: Checkbox?
+			.thenApplyAsync(VersionComboBoxModel::index),
+		this::onMCVersionsLoaded);
+	// Short delay, so scrolling through MC versions with the arrow keys doesn't load every one of them
+	private final InputPipeline<Tuple<LoaderMetadataGetter, String>, Tuple<VersionComboBoxModel.Versions, String>> loaderVersionsPipeline = new InputPipeline<>(150,
+		selected -> selected.x.getLoaderVersionsAsync(selected.y, false) // TODO: Checkbox?
+			.thenApplyAsync(VersionComboBoxModel::index)
+			.thenCombine(selected.x.getVersionOrderAsync()
+				.thenApply(order -> order.getLatestLoaderVersion(selected.y, true))
+				.exceptionally(e -> null), Tuple::new),
+		this::onLoaderVersionsLoaded);
+	// The name, and whether to replace a directory the user picked themselves
+	private final InputPipeline<Tuple<String, Boolean>, Tuple<Path, Boolean>> generatedPathPipeline = new InputPipeline<>(300,
+		request -> CompletableFuture.supplyAsync(() -> new Tuple<>(PathUtils.getGeneratedPath(request.x), request.y), SingleFlight.ioExecutor()),
+		this::onGeneratedPathDerived);
+	// The last game directory derived from the installation name, so edits by the user aren't overwritten
+	private String generatedGameDirectory = null;
 
 	public static void main(String[] args) {
+		StartupTimer.start();
+		FlightRecording.startIfEnabled();
+		if (args.length > 0 && args[0].equals("--headless")) {
+			System.exit(HeadlessInstaller.run(args));
+		}
+
+		EdtWatchdog.installIfEnabled();
 		EventQueue.invokeLater(() -> {
 			try {
 				UIManager.setLookAndFeel(new FlatLightLaf());
@@ -96,9 +149,39 @@ public class VanillaInstaller {
 		mainFrame = new JFrame();
 		mainFrame.setTitle("packwiz Vanilla Launcher installer");
 		mainFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		mainFrame.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowOpened(WindowEvent e) {
+				windowShownAt = System.nanoTime();
+				// Start fetching every loader's versions now, so they're ready by the time one is picked; off the EDT, as
+				// it's the first time the loader classes are touched
+				SingleFlight.ioExecutor().execute(() -> LoaderMetadataRegistry.getInstance().prefetch(LoaderMetadataRegistry.getLoaderNames()));
+			}
+
+			@Override
+			public void windowActivated(WindowEvent e) {
+				// Coming back to the installer; the pack might have been updated in the meantime
+				metadataRetriever.checkForUpdate();
+			}
+		});
 		mainFrame.getContentPane().setLayout(new GridBagLayout());
 
-		JPanel formContainer = new JPanel();
+		JPanel formContainer = new JPanel() {
+			private boolean painted = false;
+
+			@Override
+			protected void paintComponent(Graphics g) {
+				super.paintComponent(g);
+				if (painted) return;
+				painted = true;
+				// Everything hidden behind "More options" is built after the first frame is on screen
+				StartupTimer.mark(StartupTimer.FIRST_FRAME);
+				EventQueue.invokeLater(() -> {
+					ensureAdvancedOptions();
+					StartupTimer.mark(StartupTimer.INTERACTIVE);
+				});
+			}
+		};
 		GridBagConstraints gbc_formLayout = new GridBagConstraints();
 		gbc_formLayout.fill = GridBagConstraints.BOTH;
 		gbc_formLayout.insets = new Insets(0, 0, 5, 5);
@@ -209,6 +292,7 @@ public class VanillaInstaller {
 
 		JButton expandButton = new JButton("More options");
 		expandButton.addActionListener(e -> {
+			ensureAdvancedOptions();
 			advancedOptionsPanel.setVisible(!advancedOptionsPanel.isVisible());
 			expandButton.setText((advancedOptionsPanel.isVisible() ? "Less" : "More") + " options");
 			mainFrame.pack();
@@ -221,6 +305,89 @@ public class VanillaInstaller {
 
 
 
+		mainFrame.pack();
+		mainFrame.setLocationRelativeTo(null);
+		WatchdogReportDialog.install(mainFrame);
+
+
+
+		// TODO: load defaults and retrieved values
+		// - set launcher path to .minecraft folder
+		// - set created version name to same as installation name? (unless modified by user)
+		// - set game directory from install name (unless modified by user)
+		// - when pack URL is added, use metadata to populate install name, mod loader, mc version, loader version, etc.
+		// - set default pack URL to one appended to .jar?
+		//   - then a webpage can be used to append them and give the user a customised jar (or .exe with fabric-installer-native-bootstrap)
+
+		// TODO: implement browse buttons
+		// TODO: implement generated path / .minecraft buttons
+		// - warn if any path (other than .minecraft) already exists
+		// - warn if mods folder or packwiz.json in .minecraft is non-empty?
+
+		// TODO: when Fabric selected:
+		// - when install loader checked; list all minecraft + fabric loader versions (snapshots checkbox?)
+		// - when install loader checked, hide the "can't see the version you want" text
+		// - when install loader unchecked, display a list of installed versions
+
+		// TODO: when Forge selected:
+		// - display a list of installed versions, ideally filtered by Forge and minecraft version?
+		// - display a link to download the Forge installer
+
+		// TODO: when None selected:
+		// - display a list of installed versions
+
+		// - could display the loader and minecraft versions used by the pack even when not automatically installing
+
+		// TODO: implement next page (with install progress label + spinner)
+		// TODO: error display
+		// TODO: self version check?
+
+		nextButton.addActionListener(e -> {
+			try {
+				Main.main(new String[]{});
+			} catch (IOException ex) {
+				ex.printStackTrace();
+			}
+		});
+
+		// Listen for paste
+		var pasteAction = packUrlField.getActionMap().get("paste-from-clipboard");
+		packUrlField.getActionMap().put("paste-from-clipboard", new PasteProxy(pasteAction) {
+			@Override
+			public void textPasted(ActionEvent e) {
+				urlPipeline.submitNow(packUrlField.getText()); // This is called after the document listener
+				// So it replaces the input it just submitted
+			}
+		});
+		packUrlField.getDocument().addDocumentListener(new DocumentListener() {
+			// TODO: Lil timer to wait for the user to stop typing and DL the file
+			// OR try to parse it immediately after paste (which is why I have the textPasted bool)
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				validate();
+				urlPipeline.submit(packUrlField.getText());
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				validate();
+				urlPipeline.submit(packUrlField.getText());
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				validate();
+				urlPipeline.submit(packUrlField.getText());
+			}
+		});
+	}
+
+	/**
+	 * Builds the advanced options panel (hidden until "More options" is clicked) if it hasn't been yet
+	 */
+	private void ensureAdvancedOptions() {
+		if (advancedOptionsPanel != null) return;
+
 		// Advanced options
 
 		advancedOptionsPanel = new JPanel();
@@ -261,11 +428,11 @@ public class VanillaInstaller {
 
 		loaderGroup = new ButtonGroup();
 
-		for (var loader : LOADERS) {
-			var button = new JRadioButton(StringUtils.capitalize(loader.x));
-			button.putClientProperty("MCLoaderClass", loader.y);
+		for (var loaderName : LoaderMetadataRegistry.getLoaderNames()) {
+			var button = new JRadioButton(StringUtils.capitalize(loaderName));
+			button.putClientProperty("MCLoaderName", loaderName);
 			loaderGroup.add(button);
-			loaderRadioButtons.put(loader.x, button);
+			loaderRadioButtons.put(loaderName, button);
 			panel_3.add(button);
 		}
 
@@ -282,7 +449,8 @@ public class VanillaInstaller {
 		gbc_minecraftVersionLabel.gridy = 1;
 		advancedOptionsPanel.add(minecraftVersionLabel, gbc_minecraftVersionLabel);
 
-		minecraftVersionComboBox = new JComboBox<>();
+		minecraftVersionComboBox = new JComboBox<>(minecraftVersionModel);
+		TypeAheadKeySelection.install(minecraftVersionComboBox, minecraftVersionModel);
 		minecraftVersionComboBox.setEnabled(false); // Disabled by default until loaded
 		GridBagConstraints gbc_minecraftVersionComboBox = new GridBagConstraints();
 		gbc_minecraftVersionComboBox.insets = new Insets(0, 0, 5, 5);
@@ -315,7 +483,8 @@ public class VanillaInstaller {
 		gbc_loaderVersionLabel.gridy = 2;
 		advancedOptionsPanel.add(loaderVersionLabel, gbc_loaderVersionLabel);
 
-		loaderVersionComboBox = new JComboBox<>();
+		loaderVersionComboBox = new JComboBox<>(loaderVersionModel);
+		TypeAheadKeySelection.install(loaderVersionComboBox, loaderVersionModel);
 		loaderVersionComboBox.setEnabled(false); // Disabled by default until loaded
 		GridBagConstraints gbc_loaderVersionComboBox = new GridBagConstraints();
 		gbc_loaderVersionComboBox.insets = new Insets(0, 0, 5, 5);
@@ -449,27 +618,6 @@ public class VanillaInstaller {
 		advancedOptionsPanel.add(createdVersionNameField, gbc_createdVersionNameField);
 		createdVersionNameField.setColumns(10);
 
-
-
-		mainFrame.pack();
-		mainFrame.setLocationRelativeTo(null);
-
-
-
-		// TODO: load defaults and retrieved values
-		// - set launcher path to .minecraft folder
-		// - set created version name to same as installation name? (unless modified by user)
-		// - set game directory from install name (unless modified by user)
-		// - when pack URL is added, use metadata to populate install name, mod loader, mc version, loader version, etc.
-		// - set default pack URL to one appended to .jar?
-		//   - then a webpage can be used to append them and give the user a customised jar (or .exe with fabric-installer-native-bootstrap)
-
-		// TODO: implement browse buttons
-		// TODO: implement generated path / .minecraft buttons
-		// - warn if any path (other than .minecraft) already exists
-		// - warn if mods folder or packwiz.json in .minecraft is non-empty?
-		// TODO: implement refresh button
-
 		// Dynamically listen for em all i guess
 		var loaderGroupElements = loaderGroup.getElements();
 		while (loaderGroupElements.hasMoreElements()) {
@@ -479,99 +627,65 @@ public class VanillaInstaller {
 				public void itemStateChanged(ItemEvent e) {
 					if (e.getStateChange() != ItemEvent.SELECTED) return;
 
-					var button = (JRadioButton) e.getItem();
-					Class<LoaderMetadataGetter> loaderClass = (Class<LoaderMetadataGetter>) button.getClientProperty("MCLoaderClass");
-
-					if (loaderClass == null) return;
-
-					// Clear MC versions and loader versions, disable em until they load again
-					minecraftVersionComboBox.removeAllItems();
-					loaderVersionComboBox.removeAllItems();
-					minecraftVersionComboBox.setEnabled(false);
-					loaderVersionComboBox.setEnabled(false);
-					try {
-						loaderMetaGetter = loaderClass.getDeclaredConstructor().newInstance();
-						loadMCVersions();
-					} catch (InstantiationException | NoSuchMethodException | InvocationTargetException |
-							 IllegalAccessException ex) { // These shouldn't happen but :P
-						throw new RuntimeException(ex);
-					}
+					selectLoader((JRadioButton) e.getItem());
 				}
 			});
 		}
 
+		refreshVersionsButton.addActionListener(e -> {
+			var selected = loaderGroup.getSelection();
+			if (selected == null) return;
+			// Skip revalidation and redownload everything from scratch
+			HttpCache.getInstance().forceRefresh();
+			for (var button : loaderRadioButtons.values()) {
+				if (button.getModel() == selected) {
+					LoaderMetadataRegistry.getInstance().invalidate((String) button.getClientProperty("MCLoaderName"));
+					selectLoader(button);
+					break;
+				}
+			}
+		});
+
 		minecraftVersionComboBox.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				loadLoaderVersions();
+				if (populatingVersions) return;
+				loadLoaderVersions(false);
 			}
 		});
 
-		// TODO: when Fabric selected:
-		// - when install loader checked; list all minecraft + fabric loader versions (snapshots checkbox?)
-		// - when install loader checked, hide the "can't see the version you want" text
-		// - when install loader unchecked, display a list of installed versions
-
-		// TODO: when Forge selected:
-		// - display a list of installed versions, ideally filtered by Forge and minecraft version?
-		// - display a link to download the Forge installer
-
-		// TODO: when None selected:
-		// - display a list of installed versions
-
-		// - could display the loader and minecraft versions used by the pack even when not automatically installing
-
-		// TODO: implement next page (with install progress label + spinner)
-		// TODO: error display
-		// TODO: self version check?
-
-		nextButton.addActionListener(e -> {
-			try {
-				Main.main(new String[]{});
-			} catch (IOException ex) {
-				ex.printStackTrace();
-			}
-		});
+		// Lists are shown from a local copy first; when the network has something newer, show that
+		LoaderMetadataRegistry.getInstance().addChangeListener(getter -> EventQueue.invokeLater(() -> onVersionsChanged(getter)));
 
-		launcherPathField.setText(PathUtils.getMinecraftPath().toString());
+		// Finding it goes through the Fabric installer's utils, which aren't worth loading on the EDT
+		CompletableFuture.supplyAsync(PathUtils::getMinecraftPath, SingleFlight.ioExecutor()).thenAccept(path -> EventQueue.invokeLater(() -> {
+			if (launcherPathField.getText().isEmpty()) launcherPathField.setText(path.toString());
+		}));
 		gameDirectoryGeneratedPathButton.addActionListener(e -> {
 			// TODO: when empty, make error dialog
-			gameDirectoryField.setText(PathUtils.getGeneratedPath(installationNameField.getText()).toString());
-		});
-		gameDirectoryUseMcFolderButton.addActionListener(e -> {
-			gameDirectoryField.setText(launcherPathField.getText());
+			generatedPathPipeline.submitNow(new Tuple<>(installationNameField.getText(), true));
 		});
-
-		// Listen for paste
-		var pasteAction = packUrlField.getActionMap().get("paste-from-clipboard");
-		packUrlField.getActionMap().put("paste-from-clipboard", new PasteProxy(pasteAction) {
-			@Override
-			public void textPasted(ActionEvent e) {
-				urlDebouncer.finish(); // This is called after the document listener
-				// So we can just finish it here
-			}
-		});
-		packUrlField.getDocument().addDocumentListener(new DocumentListener() {
-			// TODO: Lil timer to wait for the user to stop typing and DL the file
-			// OR try to parse it immediately after paste (which is why I have the textPasted bool)
+		installationNameField.getDocument().addDocumentListener(new DocumentListener() {
 			@Override
 			public void insertUpdate(DocumentEvent e) {
-				validate();
-				urlDebouncer.call();
+				generatedPathPipeline.submit(new Tuple<>(installationNameField.getText(), false));
 			}
 
 			@Override
 			public void removeUpdate(DocumentEvent e) {
-				validate();
-				urlDebouncer.call();
+				generatedPathPipeline.submit(new Tuple<>(installationNameField.getText(), false));
 			}
 
 			@Override
 			public void changedUpdate(DocumentEvent e) {
-				validate();
-				urlDebouncer.call();
+				generatedPathPipeline.submit(new Tuple<>(installationNameField.getText(), false));
 			}
 		});
+		gameDirectoryUseMcFolderButton.addActionListener(e -> {
+			gameDirectoryField.setText(launcherPathField.getText());
+		});
+
+		setValid(valid);
 	}
 
 	// lil hack to know when something was just pasted
@@ -606,7 +720,11 @@ public class VanillaInstaller {
 	}
 
 	private void setValid(boolean status) {
+		valid = status;
 		installationNameField.setEnabled(status);
+		nextButton.setEnabled(status);
+		if (advancedOptionsPanel == null) return; // Picked up when it's built
+
 		refreshVersionsButton.setEnabled(status);
 		var loaders = loaderGroup.getElements();
 		AbstractButton button;
@@ -629,7 +747,11 @@ public class VanillaInstaller {
 		gameDirectoryUseMcFolderButton.setEnabled(status);
 		launcherPathBrowseButton.setEnabled(status);
 		createdVersionNameField.setEnabled(status);
-		nextButton.setEnabled(status);
+	}
+
+	private boolean isValidPackUrl(String url) {
+		// github://owner/repo/ref/path has no domain for the validator to accept
+		return urlValidator.isValid(url) || GitHubSource.isValid(url);
 	}
 
 	private void validate() {
@@ -640,7 +762,7 @@ public class VanillaInstaller {
 			return;
 		}
 
-		if (!urlValidator.isValid(packUrlField.getText())) {
+		if (!isValidPackUrl(packUrlField.getText())) {
 			setError("Invalid Pack URL");
 			return;
 		}
@@ -651,6 +773,7 @@ public class VanillaInstaller {
 
 
 	private void onPackDataLoaded(PackMetadataRetriever.Data data) {
+		ensureAdvancedOptions(); // Normally built already, unless the pack loaded from the cache straight away
 		setValid(true);
 		setLoading(false);
 
@@ -658,19 +781,31 @@ public class VanillaInstaller {
 		var vers = data.getVersions();
 		minecraftVersionComboBox.setSelectedItem(vers.get("minecraft"));
 		createdVersionNameField.setText(PathUtils.slugify(data.getName()));
-		gameDirectoryField.setText(PathUtils.getGeneratedPath(installationNameField.getText()).toString());
-
-		for (var loader : loaderRadioButtons.entrySet()) {
-			if (vers.containsKey(loader.getKey())) {
-				loader.getValue().setSelected(true); // This will automatically handle version setting, etc
-				break;
+		generatedPathPipeline.submitNow(new Tuple<>(installationNameField.getText(), true)); // Instead of waiting out the typing delay
+
+		// Same loader the bootstrap is already fetching versions for, so selecting it picks those up
+		var bootstrap = metadataRetriever.getBootstrap();
+		var declared = bootstrap != null && bootstrap.getLoader() != null ? loaderRadioButtons.get(bootstrap.getLoader().getLoaderName()) : null;
+		if (declared == null) {
+			for (var loader : loaderRadioButtons.entrySet()) {
+				if (vers.containsKey(loader.getKey())) {
+					declared = loader.getValue();
+					break;
+				}
+			}
+		}
+		if (declared != null) {
+			if (declared.isSelected()) {
+				selectLoader(declared); // No change event, but the versions still need to match the new pack
+			} else {
+				declared.setSelected(true); // This will automatically handle version setting, etc
 			}
 		}
 	}
 
 
 	private void downloadPackFile(String url) {
-		if (!urlValidator.isValid(url)) {
+		if (!isValidPackUrl(url)) {
 			setError("Invalid pack file URL");
 			return;
 		}
@@ -687,122 +822,161 @@ public class VanillaInstaller {
 		}
 	}
 
+	private void selectLoader(JRadioButton button) {
+		var loaderName = (String) button.getClientProperty("MCLoaderName");
+
+		if (loaderName == null) return;
+
+		// Clear MC versions and loader versions, disable em until they load again
+		minecraftVersionModel.clear();
+		loaderVersionModel.clear();
+		minecraftVersionComboBox.setEnabled(false);
+		loaderVersionComboBox.setEnabled(false);
+		loaderMetaGetter = LoaderMetadataRegistry.getInstance().get(loaderName);
+		refreshingVersions = false;
+		loaderVersionsPipeline.cancel(); // Those were for the previous loader
+		loadMCVersions();
+	}
+
+	private void onVersionsChanged(LoaderMetadataGetter getter) {
+		if (getter != loaderMetaGetter) return; // Picked up when that loader is selected
+		refreshingVersions = true;
+		loadMCVersions();
+	}
+
 	private void loadMCVersions() {
 		if (loaderMetaGetter == null) return; // Do nothing if no loader obtained
 
 		setLoading(true);
+		mcVersionsPipeline.submitNow(loaderMetaGetter);
+	}
 
-		var thread = new SwingWorker<List<String>, Void>() {
-			@Override
-			public List<String> doInBackground() {
-				return loaderMetaGetter.getMinecraftVersions(false); // TODO: Checkbox?
+	/**
+	 * The newest stable MC version every loader supports, so switching loaders can keep it, or else the newest this
+	 * one supports; null if neither is known in time
+	 */
+	private static CompletableFuture<String> getDefaultMCVersionAsync(LoaderMetadataGetter getter) {
+		var registry = LoaderMetadataRegistry.getInstance();
+		return registry.getNewestCommonMinecraftVersionAsync(LoaderMetadataRegistry.getLoaderNames(), true)
+			.exceptionally(e -> null)
+			.thenCompose(common -> common != null ? CompletableFuture.completedFuture(common)
+				: getter.getVersionOrderAsync().thenApply(order -> order.getLatestMinecraftVersion(true)))
+			.orTimeout(DEFAULT_MC_VERSION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+			.exceptionally(e -> null);
+	}
+
+	/**
+	 * Moves the selection to the default MC version once it's known, unless the list or selection changed since
+	 */
+	private void selectDefaultMCVersionLater(LoaderMetadataGetter getter, List<String> versions, Object initial) {
+		getDefaultMCVersionAsync(getter).thenAccept(version -> EventQueue.invokeLater(() -> {
+			if (version == null || version.equals(initial) || getter != loaderMetaGetter) return;
+			if (minecraftVersionModel.getVersions() != versions || !Objects.equals(minecraftVersionModel.getSelectedItem(), initial)) return;
+			if (!versions.contains(version)) return;
+			populatingVersions = true;
+			try {
+				minecraftVersionModel.setSelectedItem(version);
+			} finally {
+				populatingVersions = false;
 			}
+			loadLoaderVersions(true);
+		}));
+	}
 
-			@Override
-			protected void done() {
-				setLoading(false);
-
-				minecraftVersionComboBox.setEnabled(true); // Gotta enable it to remove everything - sigh
-				minecraftVersionComboBox.removeAllItems();
-
-				// Remove listeners first... If not they'll get called as we add everything
-				final ActionListener[] actionListeners = minecraftVersionComboBox.getActionListeners();
-				for (final ActionListener listener : actionListeners)
-					minecraftVersionComboBox.removeActionListener(listener);
-
-				List<String> versions = null;
-				try {
-					versions = this.get();
-					for (int i = 0; i < versions.size(); i++) {
-						var version = versions.get(i);
-						minecraftVersionComboBox.addItem(version);
-					}
-				} catch (InterruptedException | ExecutionException e) {
-					//throw new RuntimeException(e);
-					setError("Error while loading " + loaderMetaGetter.getLoaderName() + " MC versions: " + e.getLocalizedMessage());
-				}
+	private void onMCVersionsLoaded(VersionComboBoxModel.Versions versions, Throwable error) {
+		setLoading(false);
 
-				// We re-add the listeners
-				for (final ActionListener listener : actionListeners)
-					minecraftVersionComboBox.addActionListener(listener);
-
-				// Only set the selected if it's our loader
-				var metadata = metadataRetriever.getData();
-				if (versions != null && metadata != null && metadata.getVersions().containsKey("minecraft") && metadata.getVersions().containsKey(loaderMetaGetter.getLoaderName()) // Only match if the loader is the same!
-					&& versions.contains(metadata.getVersions().get("minecraft"))) {
-					minecraftVersionComboBox.setSelectedIndex(versions.indexOf(metadata.getVersions().get("minecraft")));
-				} else if (minecraftVersionComboBox.getItemCount() > 0) { // Else we set the first one so the event gets called
-					minecraftVersionComboBox.setSelectedIndex(0);
-				} else {
-					minecraftVersionComboBox.setEnabled(false);
-				}
-			}
-		};
+		if (error != null) {
+			setError("Error while loading " + loaderMetaGetter.getLoaderName() + " MC versions: " + unwrap(error).getLocalizedMessage());
+		}
+
+		// Only select the pack's version if it's our loader
+		var metadata = metadataRetriever.getData();
+		String preferred = null;
+		if (refreshingVersions) {
+			preferred = (String) minecraftVersionModel.getSelectedItem();
+		} else if (metadata != null && metadata.getVersions().containsKey(loaderMetaGetter.getLoaderName())) { // Only match if the loader is the same!
+			preferred = metadata.getVersions().get("minecraft");
+		}
+
+		// Swapped in whole; the loader versions are loaded below rather than by the listener
+		populatingVersions = true;
+		try {
+			minecraftVersionModel.setVersions(error == null ? versions : VersionComboBoxModel.Versions.EMPTY, preferred);
+		} finally {
+			populatingVersions = false;
+		}
+		minecraftVersionComboBox.setEnabled(minecraftVersionModel.getSize() > 0);
+		if (minecraftVersionModel.getSize() == 0) refreshingVersions = false; // No loader versions to load
+
+		// Not a user selection, so no need to wait for more input; when the pack's loader is selected this joins the
+		// fetch the bootstrap already started
+		loadLoaderVersions(true);
+
+		// The default needs every loader's versions, so the list isn't held up waiting for it
+		if (preferred == null && minecraftVersionModel.getSize() > 0) {
+			selectDefaultMCVersionLater(loaderMetaGetter, minecraftVersionModel.getVersions(), minecraftVersionModel.getSelectedItem());
+		}
 
-		thread.execute();
+		if (!versionsPopulated && minecraftVersionComboBox.getItemCount() > 0) {
+			versionsPopulated = true;
+			Debug.log("First version list populated %d ms after the window was shown", (System.nanoTime() - windowShownAt) / 1_000_000);
+		}
 	}
 
-	private void loadLoaderVersions() {
+	private void loadLoaderVersions(boolean immediate) {
 		if (loaderMetaGetter == null) return; // Do nothing if no loader obtained
 		String mcVersion = (String) minecraftVersionComboBox.getSelectedItem();
 		if (mcVersion == null) return; // Do nothing if mc version is not selected
 
 		setLoading(true);
+		var selected = new Tuple<>(loaderMetaGetter, mcVersion);
+		if (immediate) {
+			loaderVersionsPipeline.submitNow(selected);
+		} else {
+			loaderVersionsPipeline.submit(selected);
+		}
+	}
 
-		var thread = new SwingWorker<List<String>, Void>() {
-			@Override
-			protected List<String> doInBackground() {
-				return loaderMetaGetter.getLoaderVersions(mcVersion, false); // TODO: Checkbox?
-			}
+	private void onLoaderVersionsLoaded(Tuple<VersionComboBoxModel.Versions, String> loaded, Throwable error) {
+		setLoading(false);
 
-			@Override
-			protected void done() {
-				setLoading(false);
-				if (this.isCancelled()) return;
-
-				loaderVersionComboBox.setEnabled(true); // Gotta enable it to remove everything - sigh
-				loaderVersionComboBox.removeAllItems();
-
-				// Remove listeners first... If not they'll get called as we add everything
-				final ActionListener[] actionListeners = loaderVersionComboBox.getActionListeners();
-				for (final ActionListener listener : actionListeners)
-					loaderVersionComboBox.removeActionListener(listener);
-
-				List<String> versions = null;
-				try {
-					versions = this.get();
-
-					for (int i = 0; i < versions.size(); i++) {
-						var version = versions.get(i);
-						loaderVersionComboBox.addItem(version);
-						if (metadataRetriever.getData() != null && version.equals(metadataRetriever.getData().getVersions().get(loaderMetaGetter.getLoaderName()))) {
-							loaderVersionComboBox.setSelectedIndex(i);
-						}
-					}
-					loaderVersionComboBox.setEnabled(true);
-
-				} catch (InterruptedException | ExecutionException e) {
-					//throw new RuntimeException(e);
-					setError("Error while loading " + loaderMetaGetter.getLoaderName() + " versions: " + e.getLocalizedMessage());
-				}
+		if (error != null) {
+			setError("Error while loading " + loaderMetaGetter.getLoaderName() + " versions: " + unwrap(error).getLocalizedMessage());
+		}
 
-				// We re-add the listeners
-				for (final ActionListener listener : actionListeners)
-					loaderVersionComboBox.addActionListener(listener);
-
-				// Only set the selected if it's our loader
-				var metadata = metadataRetriever.getData();
-				if (versions != null && metadata != null && metadata.getVersions().containsKey(loaderMetaGetter.getLoaderName())
-					&& versions.contains(metadata.getVersions().get(loaderMetaGetter.getLoaderName()))) {
-					loaderVersionComboBox.setSelectedIndex(versions.indexOf(metadata.getVersions().get(loaderMetaGetter.getLoaderName())));
-				} else if (loaderVersionComboBox.getItemCount() > 0) { // Else we set the first one so the event gets called
-					loaderVersionComboBox.setSelectedIndex(0);
-				} else {
-					loaderVersionComboBox.setEnabled(false);
-				}
-			}
-		};
+		// Only select the pack's version if it's our loader
+		var metadata = metadataRetriever.getData();
+		String preferred;
+		if (refreshingVersions) {
+			preferred = (String) loaderVersionModel.getSelectedItem();
+			refreshingVersions = false;
+		} else {
+			preferred = metadata != null ? metadata.getVersions().get(loaderMetaGetter.getLoaderName()) : null;
+			// Otherwise the latest stable version
+			if (preferred == null && loaded != null) preferred = loaded.y;
+		}
+
+		populatingVersions = true;
+		try {
+			loaderVersionModel.setVersions(error == null ? loaded.x : VersionComboBoxModel.Versions.EMPTY, preferred);
+		} finally {
+			populatingVersions = false;
+		}
+		loaderVersionComboBox.setEnabled(loaderVersionModel.getSize() > 0);
+	}
+
+	private void onGeneratedPathDerived(Tuple<Path, Boolean> derived, Throwable error) {
+		if (error != null) return;
+		var current = gameDirectoryField.getText();
+		// Unless asked to, only follow the name while the user hasn't picked a directory of their own
+		if (derived.y || current.isEmpty() || current.equals(generatedGameDirectory)) {
+			generatedGameDirectory = derived.x.toString();
+			gameDirectoryField.setText(generatedGameDirectory);
+		}
+	}
 
-		thread.execute();
+	private static Throwable unwrap(Throwable error) {
+		return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
 	}
 }
@@ -0,0 +1,292 @@
+package link.infra.packwiz.vanillainstaller.cli;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import link.infra.packwiz.vanillainstaller.install.LauncherProfiles;
+import link.infra.packwiz.vanillainstaller.install.PackInstaller;
+import link.infra.packwiz.vanillainstaller.jfr.InstallPhaseEvent;
+import link.infra.packwiz.vanillainstaller.meta.PackDataCache;
+import link.infra.packwiz.vanillainstaller.meta.PackMetadataRetriever;
+import link.infra.packwiz.vanillainstaller.util.PathUtils;
+import net.fabricmc.installer.Main;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Installs packs without the GUI, for provisioning many instances at once (e.g. from scripts or CI).
+ * Jobs run concurrently and share the HTTP cache and artifact store; progress is written to stdout as JSON lines.
+ */
+public class HeadlessInstaller {
+	private static final Gson GSON = new Gson();
+	private static final String[] LOADER_KEYS = {"fabric", "quilt", "forge"};
+	// fabric-installer keeps global state, so only one loader install at a time
+	private static final Object LOADER_LOCK = new Object();
+
+	private static final String USAGE = """
+		Usage: --headless [options] [--pack <url> [job options]]...
+		  --jobs <file>           JSON job file: an array of jobs, or {"defaults": {...}, "jobs": [...]}
+		  --concurrency <n>       Number of packs installed at once (default 4)
+		  --parallelism <n>       Number of downloads per pack (default %d)
+		  --pack <url>            Starts a new job; options before the first --pack apply to every job
+		Job options (job file keys in brackets):
+		  --name <name>           Installation name [name], defaults to the pack name
+		  --game-dir <dir>        [gameDir], defaults to a generated directory
+		  --launcher-dir <dir>    Minecraft Launcher directory [launcherDir], defaults to .minecraft
+		  --minecraft <version>   [minecraft], defaults to the pack's version
+		  --loader <name>         fabric, quilt or forge [loader], defaults to the pack's loader
+		  --loader-version <ver>  [loaderVersion], defaults to the pack's version
+		  --no-loader             Don't install the loader [installLoader: false], needed for quilt and forge for now
+		  --no-profile            Don't add a launcher profile [profile: false]
+		""";
+
+	private int concurrency = 4;
+	private int parallelism = PackInstaller.DEFAULT_PARALLELISM;
+	private InstallJob defaults = new InstallJob();
+	private final List<InstallJob> jobs = new ArrayList<>();
+	private final PrintStream out;
+
+	private HeadlessInstaller(PrintStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * @return The process exit code: 0 when every job succeeded, 1 when any failed, 2 for invalid arguments
+	 */
+	public static int run(String[] args) {
+		// Keep stdout for progress lines only; anything else printing (e.g. fabric-installer) goes to stderr
+		var out = System.out;
+		System.setOut(System.err);
+
+		var installer = new HeadlessInstaller(out);
+		try {
+			if (!installer.parseArgs(args)) {
+				System.err.printf(USAGE, PackInstaller.DEFAULT_PARALLELISM);
+				return 2;
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.printf(USAGE, PackInstaller.DEFAULT_PARALLELISM);
+			return 2;
+		}
+		return installer.runAll();
+	}
+
+	private boolean parseArgs(String[] args) throws IOException {
+		InstallJob current = defaults;
+		for (int i = 0; i < args.length; i++) {
+			var arg = args[i];
+			switch (arg) {
+				case "--headless" -> {}
+				case "--help", "-h" -> {
+					return false;
+				}
+				case "--no-loader" -> current.installLoader = false;
+				case "--no-profile" -> current.profile = false;
+				default -> {
+					if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + arg);
+					var value = args[++i];
+					switch (arg) {
+						case "--jobs" -> {
+							// The job file's defaults replace the defaults object, so later options must go to the new one
+							boolean settingDefaults = current == defaults;
+							readJobFile(Path.of(value));
+							if (settingDefaults) current = defaults;
+						}
+						case "--concurrency" -> concurrency = parsePositive(arg, value);
+						case "--parallelism" -> parallelism = parsePositive(arg, value);
+						case "--pack" -> {
+							current = new InstallJob();
+							current.pack = value;
+							jobs.add(current);
+						}
+						case "--name" -> current.name = value;
+						case "--game-dir" -> current.gameDir = value;
+						case "--launcher-dir" -> current.launcherDir = value;
+						case "--minecraft" -> current.minecraft = value;
+						case "--loader" -> current.loader = value;
+						case "--loader-version" -> current.loaderVersion = value;
+						default -> throw new IllegalArgumentException("Unknown option " + arg);
+					}
+				}
+			}
+		}
+		if (jobs.isEmpty()) throw new IllegalArgumentException("No packs given");
+		return true;
+	}
+
+	private void readJobFile(Path file) throws IOException {
+		JsonElement root;
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			root = JsonParser.parseReader(reader);
+		} catch (RuntimeException e) {
+			throw new IOException("Failed to read job file " + file + ": " + e.getMessage(), e);
+		}
+		JsonElement jobList = root;
+		if (root.isJsonObject()) {
+			var object = root.getAsJsonObject();
+			if (object.has("defaults")) {
+				// Command line defaults win over the job file's
+				defaults = defaults.withDefaults(GSON.fromJson(object.get("defaults"), InstallJob.class));
+			}
+			jobList = object.get("jobs");
+		}
+		if (jobList == null || !jobList.isJsonArray()) throw new IOException("Job file " + file + " has no jobs array");
+		for (var element : jobList.getAsJsonArray()) {
+			jobs.add(GSON.fromJson(element, InstallJob.class));
+		}
+	}
+
+	private static int parsePositive(String arg, String value) {
+		try {
+			int parsed = Integer.parseInt(value);
+			if (parsed > 0) return parsed;
+		} catch (NumberFormatException ignored) {}
+		throw new IllegalArgumentException("Invalid value for " + arg + ": " + value);
+	}
+
+	private int runAll() {
+		var executor = Executors.newFixedThreadPool(Math.min(concurrency, jobs.size()), r -> {
+			var thread = new Thread(r, "packwiz-headless");
+			thread.setDaemon(true);
+			return thread;
+		});
+		var summary = new JsonLinesProgress(out, null);
+		try {
+			var futures = new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < jobs.size(); i++) {
+				var job = jobs.get(i).withDefaults(defaults);
+				if (job.id == null) job.id = String.valueOf(i);
+				futures.add(executor.submit(() -> runJob(job)));
+			}
+			int failed = 0;
+			for (var future : futures) {
+				try {
+					if (!future.get()) failed++;
+				} catch (ExecutionException e) {
+					failed++;
+				}
+			}
+			var event = summary.event("summary");
+			event.addProperty("succeeded", jobs.size() - failed);
+			event.addProperty("failed", failed);
+			summary.emit(event);
+			return failed == 0 ? 0 : 1;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return 1;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private boolean runJob(InstallJob job) {
+		var progress = new JsonLinesProgress(out, job.id);
+		long start = System.nanoTime();
+		try {
+			if (job.pack == null) throw new IOException("Job has no pack URL");
+			var packUri = new URI(job.pack);
+			progress.emit("start", "pack", packUri.toString());
+
+			// Conditional when the pack was fetched before, so an unchanged pack costs a single 304
+			PackDataCache.Entry entry;
+			try {
+				entry = PackDataCache.getInstance().fetch(packUri).get();
+			} catch (ExecutionException e) {
+				throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+			}
+			var data = entry.data();
+			if (data == null || data.getIndex() == null) throw new IOException("Invalid pack file " + packUri);
+			progress.emit("pack", "hash", entry.hash());
+
+			var name = job.name != null ? job.name : data.getName();
+			if (name == null || PathUtils.slugify(name).isEmpty()) throw new IOException("No installation name given and the pack has none");
+			var gameDir = job.gameDir != null ? Path.of(job.gameDir) : PathUtils.getGeneratedPath(name);
+			var versions = data.getVersions();
+			var minecraft = job.minecraft != null ? job.minecraft : versions == null ? null : versions.get("minecraft");
+			if (minecraft == null) throw new IOException("No Minecraft version given and the pack has none");
+			var loader = job.loader != null ? job.loader : packLoader(data);
+			var loaderVersion = job.loaderVersion != null ? job.loaderVersion : loader == null || versions == null ? null : versions.get(loader);
+			if (loader != null && loaderVersion == null) throw new IOException("No " + loader + " version given and the pack has none");
+			// Checked up front, so a job that can't finish doesn't download the pack or add a profile for a missing version
+			if (loader != null && job.isInstallLoader() && !loader.equals("fabric")) {
+				throw new IOException("Installing " + loader + " isn't supported yet; install it separately and use --no-loader");
+			}
+
+			var installEvent = progress.event("installing");
+			installEvent.addProperty("gameDir", gameDir.toAbsolutePath().toString());
+			installEvent.addProperty("minecraft", minecraft);
+			installEvent.addProperty("loader", loader);
+			installEvent.addProperty("loaderVersion", loaderVersion);
+			progress.emit(installEvent);
+
+			new PackInstaller(packUri, data, gameDir, parallelism).install(progress);
+
+			var launcherDir = job.launcherDir != null ? Path.of(job.launcherDir) : PathUtils.getMinecraftPath();
+			var versionId = loader == null ? minecraft : loaderVersionId(loader, minecraft, loaderVersion);
+			if (loader != null && job.isInstallLoader()) {
+				var phase = new InstallPhaseEvent(packUri.toString(), "loader");
+				installLoader(progress, launcherDir, loader, minecraft, loaderVersion);
+				phase.finish(0);
+			}
+			if (job.isProfile()) {
+				var phase = new InstallPhaseEvent(packUri.toString(), "profile");
+				var profileId = "packwiz-" + PathUtils.slugify(name);
+				LauncherProfiles.addProfile(launcherDir, profileId, name, versionId, gameDir);
+				phase.finish(0);
+				progress.emit("profile", "id", profileId);
+			}
+
+			var done = progress.event("done");
+			done.addProperty("millis", (System.nanoTime() - start) / 1_000_000);
+			progress.emit(done);
+			return true;
+		} catch (IOException | URISyntaxException | RuntimeException e) {
+			progress.emit("failed", "error", String.valueOf(e));
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			progress.emit("failed", "error", "Interrupted");
+			return false;
+		}
+	}
+
+	private static String packLoader(PackMetadataRetriever.Data data) {
+		if (data.getVersions() == null) return null;
+		for (var key : LOADER_KEYS) {
+			if (data.getVersions().containsKey(key)) return key;
+		}
+		return null;
+	}
+
+	/**
+	 * @return The name of the launcher version that the loader's installer creates
+	 */
+	private static String loaderVersionId(String loader, String minecraft, String loaderVersion) {
+		return switch (loader) {
+			case "fabric" -> "fabric-loader-" + loaderVersion + "-" + minecraft;
+			case "quilt" -> "quilt-loader-" + loaderVersion + "-" + minecraft;
+			case "forge" -> minecraft + "-forge-" + loaderVersion;
+			default -> throw new IllegalArgumentException("Unknown loader " + loader);
+		};
+	}
+
+	private static void installLoader(JsonLinesProgress progress, Path launcherDir, String loader, String minecraft, String loaderVersion) throws IOException {
+		synchronized (LOADER_LOCK) {
+			Main.main(new String[]{"client", "-dir", launcherDir.toAbsolutePath().toString(), "-mcversion", minecraft, "-loader", loaderVersion, "-noprofile"});
+		}
+		progress.emit("loader-installed", "version", loaderVersionId(loader, minecraft, loaderVersion));
+	}
+}
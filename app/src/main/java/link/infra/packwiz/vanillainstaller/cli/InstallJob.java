@@ -0,0 +1,76 @@
+package link.infra.packwiz.vanillainstaller.cli;
+
+/**
+ * One pack installation for the headless installer, from the command line or a job file.
+ * Fields left null are taken from the job file defaults, then from pack.toml.
+ */
+public class InstallJob {
+	String id;
+	String pack;
+	String name;
+	String gameDir;
+	String launcherDir;
+	String minecraft;
+	String loader;
+	String loaderVersion;
+	Boolean installLoader;
+	Boolean profile;
+
+	public String getId() {
+		return id;
+	}
+
+	public String getPack() {
+		return pack;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getGameDir() {
+		return gameDir;
+	}
+
+	public String getLauncherDir() {
+		return launcherDir;
+	}
+
+	public String getMinecraft() {
+		return minecraft;
+	}
+
+	public String getLoader() {
+		return loader;
+	}
+
+	public String getLoaderVersion() {
+		return loaderVersion;
+	}
+
+	public boolean isInstallLoader() {
+		return installLoader == null || installLoader;
+	}
+
+	public boolean isProfile() {
+		return profile == null || profile;
+	}
+
+	/**
+	 * @return A copy of this job, with unset fields taken from the defaults
+	 */
+	InstallJob withDefaults(InstallJob defaults) {
+		var job = new InstallJob();
+		job.id = id;
+		job.pack = pack != null ? pack : defaults.pack;
+		job.name = name != null ? name : defaults.name;
+		job.gameDir = gameDir != null ? gameDir : defaults.gameDir;
+		job.launcherDir = launcherDir != null ? launcherDir : defaults.launcherDir;
+		job.minecraft = minecraft != null ? minecraft : defaults.minecraft;
+		job.loader = loader != null ? loader : defaults.loader;
+		job.loaderVersion = loaderVersion != null ? loaderVersion : defaults.loaderVersion;
+		job.installLoader = installLoader != null ? installLoader : defaults.installLoader;
+		job.profile = profile != null ? profile : defaults.profile;
+		return job;
+	}
+}
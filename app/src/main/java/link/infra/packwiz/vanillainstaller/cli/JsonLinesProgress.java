@@ -0,0 +1,79 @@
+package link.infra.packwiz.vanillainstaller.cli;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import link.infra.packwiz.vanillainstaller.install.InstallProgress;
+
+import java.io.PrintStream;
+
+/**
+ * Writes progress as one JSON object per line, tagged with the job it belongs to, so wrapping tools can follow many
+ * installs running at once
+ */
+public class JsonLinesProgress implements InstallProgress {
+	private static final Gson GSON = new Gson();
+
+	private final PrintStream out;
+	private final String job;
+
+	public JsonLinesProgress(PrintStream out, String job) {
+		this.out = out;
+		this.job = job;
+	}
+
+	public JsonObject event(String type) {
+		var event = new JsonObject();
+		event.addProperty("time", System.currentTimeMillis());
+		event.addProperty("job", job);
+		event.addProperty("event", type);
+		return event;
+	}
+
+	public void emit(JsonObject event) {
+		var line = GSON.toJson(event);
+		// Lines from different jobs mustn't interleave
+		synchronized (out) {
+			out.println(line);
+			out.flush();
+		}
+	}
+
+	public void emit(String type, String key, String value) {
+		var event = event(type);
+		event.addProperty(key, value);
+		emit(event);
+	}
+
+	@Override
+	public void onIndexLoaded(int fileCount) {
+		var event = event("index");
+		event.addProperty("files", fileCount);
+		emit(event);
+	}
+
+	@Override
+	public void onFileInstalled(String path, long bytes) {
+		var event = event("file-installed");
+		event.addProperty("path", path);
+		event.addProperty("bytes", bytes);
+		emit(event);
+	}
+
+	@Override
+	public void onFileFailed(String path, Throwable error) {
+		var event = event("file-failed");
+		event.addProperty("path", path);
+		event.addProperty("error", String.valueOf(error));
+		emit(event);
+	}
+
+	@Override
+	public void onFileSkipped(String path) {
+		emit("file-skipped", "path", path);
+	}
+
+	@Override
+	public void onFileRemoved(String path) {
+		emit("file-removed", "path", path);
+	}
+}
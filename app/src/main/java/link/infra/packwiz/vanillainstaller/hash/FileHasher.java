@@ -0,0 +1,142 @@
+package link.infra.packwiz.vanillainstaller.hash;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Hashes files with several formats in one pass. Small files are read through a reused per-thread direct buffer,
+ * large ones are memory-mapped, so nothing is allocated per chunk. Batches are hashed in parallel on a fork-join pool.
+ */
+public class FileHasher {
+	private FileHasher() {}
+
+	private static final int BUFFER_SIZE = 1 << 20;
+	// Files above this are mapped instead of read
+	private static final long MAP_THRESHOLD = 4L << 20;
+	// Mapped in windows, since a single mapping can't be larger than 2GB
+	private static final long MAP_WINDOW = 256L << 20;
+
+	private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+	private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+	public static String hash(Path file, HashFormat format) throws IOException {
+		return hash(file, Set.of(format)).get(format);
+	}
+
+	public static Map<HashFormat, String> hash(Path file, Set<HashFormat> formats) throws IOException {
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			long normalizedLength = 0;
+			if (formats.contains(HashFormat.MURMUR2)) {
+				// murmur2 needs the length of the input without whitespace before it can start
+				normalizedLength = forEachChunk(channel, size, new long[1], (buffer, count) -> count[0] += Murmur2Hasher.countNormalized(buffer))[0];
+			}
+
+			var hashers = new Hasher[formats.size()];
+			var order = new HashFormat[formats.size()];
+			int i = 0;
+			for (var format : formats) {
+				order[i] = format;
+				hashers[i++] = format.newHasher(normalizedLength);
+			}
+
+			forEachChunk(channel, size, hashers, (buffer, hs) -> {
+				int position = buffer.position();
+				for (var hasher : hs) {
+					buffer.position(position);
+					hasher.update(buffer);
+				}
+			});
+
+			var result = new EnumMap<HashFormat, String>(HashFormat.class);
+			for (i = 0; i < hashers.length; i++) {
+				result.put(order[i], hashers[i].finish());
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Hashes many files in parallel
+	 * @return The hashes of each file; files that couldn't be read are missing
+	 */
+	public static Map<Path, Map<HashFormat, String>> hashAll(List<Path> files, Set<HashFormat> formats) {
+		var results = new ConcurrentHashMap<Path, Map<HashFormat, String>>();
+		POOL.invoke(new HashTask(files, formats, results));
+		return Collections.unmodifiableMap(results);
+	}
+
+	private interface ChunkConsumer<T> {
+		void accept(ByteBuffer buffer, T state) throws IOException;
+	}
+
+	private static <T> T forEachChunk(FileChannel channel, long size, T state, ChunkConsumer<T> consumer) throws IOException {
+		if (size > MAP_THRESHOLD) {
+			for (long offset = 0; offset < size; offset += MAP_WINDOW) {
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(MAP_WINDOW, size - offset));
+				consumer.accept(mapped, state);
+			}
+		} else {
+			var buffer = BUFFERS.get();
+			long position = 0;
+			while (true) {
+				buffer.clear();
+				int read = channel.read(buffer, position);
+				if (read < 0) break;
+				position += read;
+				buffer.flip();
+				consumer.accept(buffer, state);
+			}
+		}
+		return state;
+	}
+
+	@SuppressWarnings("serial")
+	private static class HashTask extends RecursiveAction {
+		private static final int THRESHOLD = 4;
+
+		private final List<Path> files;
+		private final Set<HashFormat> formats;
+		private final Map<Path, Map<HashFormat, String>> results;
+
+		HashTask(List<Path> files, Set<HashFormat> formats, Map<Path, Map<HashFormat, String>> results) {
+			this.files = files;
+			this.formats = formats;
+			this.results = results;
+		}
+
+		@Override
+		protected void compute() {
+			if (files.size() <= THRESHOLD) {
+				for (var file : files) {
+					try {
+						results.put(file, hash(file, formats));
+					} catch (IOException | UncheckedIOException e) {
+						// Unreadable files are left out, callers treat them as mismatches
+					}
+				}
+				return;
+			}
+			int mid = files.size() / 2;
+			var tasks = new ArrayList<HashTask>(2);
+			tasks.add(new HashTask(files.subList(0, mid), formats, results));
+			tasks.add(new HashTask(files.subList(mid, files.size()), formats, results));
+			invokeAll(tasks);
+		}
+	}
+}
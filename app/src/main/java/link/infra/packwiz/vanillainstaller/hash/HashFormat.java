@@ -0,0 +1,104 @@
+package link.infra.packwiz.vanillainstaller.hash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Hash formats that can show up in packwiz index files and metafiles
+ */
+public enum HashFormat {
+	SHA1("sha1", "SHA-1"),
+	SHA256("sha256", "SHA-256"),
+	SHA512("sha512", "SHA-512"),
+	MD5("md5", "MD5"),
+	// CurseForge's fingerprint: murmur2 over the file with whitespace stripped; needs the length up front
+	MURMUR2("murmur2", null);
+
+	private final String name;
+	private final String algorithm;
+
+	HashFormat(String name, String algorithm) {
+		this.name = name;
+		this.algorithm = algorithm;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public static HashFormat fromName(String name) throws IOException {
+		if (name != null) {
+			var lower = name.toLowerCase(Locale.ROOT);
+			for (var format : values()) {
+				if (format.name.equals(lower)) return format;
+			}
+		}
+		throw new IOException("Unsupported hash format: " + name);
+	}
+
+	/**
+	 * @return Whether the hash can be computed in a single pass without knowing the length first
+	 */
+	public boolean isStreamable() {
+		return algorithm != null;
+	}
+
+	/**
+	 * @return Creates hashers that can be fed the input as it arrives, or null if the format isn't streamable
+	 */
+	public Supplier<Hasher> streamingHasher() {
+		return isStreamable() ? this::digestHasher : null;
+	}
+
+	private Hasher digestHasher() {
+		try {
+			return new DigestHasher(MessageDigest.getInstance(algorithm));
+		} catch (NoSuchAlgorithmException e) { // Every JVM has these
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @param normalizedLength For murmur2, the number of non-whitespace bytes in the input (see {@link Murmur2Hasher#countNormalized})
+	 */
+	public Hasher newHasher(long normalizedLength) {
+		return this == MURMUR2 ? new Murmur2Hasher(normalizedLength) : digestHasher();
+	}
+
+	public String hash(byte[] data) {
+		var buffer = ByteBuffer.wrap(data);
+		long normalizedLength = this == MURMUR2 ? Murmur2Hasher.countNormalized(buffer.duplicate()) : 0;
+		var hasher = newHasher(normalizedLength);
+		hasher.update(buffer);
+		return hasher.finish();
+	}
+
+	public void verify(String what, String expected, String actual) throws IOException {
+		if (expected == null || !expected.equalsIgnoreCase(actual)) {
+			throw new IOException("Hash mismatch for " + what + ": expected " + name + " " + expected + ", got " + actual);
+		}
+	}
+
+	private static class DigestHasher implements Hasher {
+		private final MessageDigest digest;
+
+		DigestHasher(MessageDigest digest) {
+			this.digest = digest;
+		}
+
+		@Override
+		public void update(ByteBuffer buffer) {
+			digest.update(buffer);
+		}
+
+		@Override
+		public String finish() {
+			return HexFormat.of().formatHex(digest.digest());
+		}
+	}
+}
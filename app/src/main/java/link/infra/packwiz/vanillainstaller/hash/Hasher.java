@@ -0,0 +1,18 @@
+package link.infra.packwiz.vanillainstaller.hash;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental hash computation, fed with buffers that may be direct or memory-mapped
+ */
+public interface Hasher {
+	/**
+	 * Consumes the remaining bytes of the buffer
+	 */
+	void update(ByteBuffer buffer);
+
+	/**
+	 * @return The hash in the format packwiz uses for it (hex, or unsigned decimal for murmur2)
+	 */
+	String finish();
+}
@@ -0,0 +1,66 @@
+package link.infra.packwiz.vanillainstaller.hash;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MurmurHash2 (32 bit, seed 1) as used by CurseForge fingerprints, which skip tab, LF, CR and space bytes
+ */
+public class Murmur2Hasher implements Hasher {
+	private static final int M = 0x5bd1e995;
+	private static final int R = 24;
+
+	private int h;
+	private int block = 0;
+	private int blockLength = 0;
+
+	public Murmur2Hasher(long normalizedLength) {
+		this.h = 1 ^ (int) normalizedLength;
+	}
+
+	public static boolean isWhitespace(byte b) {
+		return b == 9 || b == 10 || b == 13 || b == 32;
+	}
+
+	/**
+	 * Consumes the remaining bytes of the buffer, counting the bytes that are hashed
+	 */
+	public static long countNormalized(ByteBuffer buffer) {
+		long count = 0;
+		while (buffer.hasRemaining()) {
+			if (!isWhitespace(buffer.get())) count++;
+		}
+		return count;
+	}
+
+	@Override
+	public void update(ByteBuffer buffer) {
+		while (buffer.hasRemaining()) {
+			byte b = buffer.get();
+			if (isWhitespace(b)) continue;
+			block |= (b & 0xFF) << (blockLength * 8);
+			if (++blockLength == 4) {
+				int k = block;
+				k *= M;
+				k ^= k >>> R;
+				k *= M;
+				h *= M;
+				h ^= k;
+				block = 0;
+				blockLength = 0;
+			}
+		}
+	}
+
+	@Override
+	public String finish() {
+		int hash = h;
+		if (blockLength > 0) {
+			hash ^= block;
+			hash *= M;
+		}
+		hash ^= hash >>> 13;
+		hash *= M;
+		hash ^= hash >>> 15;
+		return Integer.toUnsignedString(hash);
+	}
+}
@@ -0,0 +1,115 @@
+package link.infra.packwiz.vanillainstaller.install;
+
+import link.infra.packwiz.vanillainstaller.hash.FileHasher;
+import link.infra.packwiz.vanillainstaller.hash.HashFormat;
+import link.infra.packwiz.vanillainstaller.net.ResumableDownload;
+import link.infra.packwiz.vanillainstaller.util.PathUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressable store of downloaded files shared by every instance, keyed by hash format and hash.
+ * Files are materialized into instances as hard links where the filesystem allows it, and copied otherwise.
+ */
+public class ArtifactStore {
+	private static final ArtifactStore INSTANCE = new ArtifactStore(PathUtils.getPackwizUserPath().resolve("store"));
+	private static final Pattern VALID_HASH = Pattern.compile("[0-9a-zA-Z]+");
+
+	public static ArtifactStore getInstance() {
+		return INSTANCE;
+	}
+
+	private final Path root;
+	private final Map<Path, Lock> locks = new ConcurrentHashMap<>();
+
+	// Counts its holders and waiters, so it's only dropped once none are left and every fetcher shares the same one
+	private static class Lock {
+		int users = 0;
+	}
+
+	public ArtifactStore(Path root) {
+		this.root = root;
+	}
+
+	public Path pathFor(String hashFormat, String hash) throws IOException {
+		if (hash == null || !VALID_HASH.matcher(hash).matches() || hashFormat == null || !VALID_HASH.matcher(hashFormat).matches()) {
+			throw new IOException("Invalid hash " + hashFormat + " " + hash);
+		}
+		var normalized = hash.toLowerCase(Locale.ROOT);
+		var prefix = normalized.length() > 2 ? normalized.substring(0, 2) : normalized;
+		return root.resolve(hashFormat.toLowerCase(Locale.ROOT)).resolve(prefix).resolve(normalized);
+	}
+
+	/**
+	 * @return The stored artifact, downloading and verifying it first if the store doesn't have it yet
+	 */
+	public Path fetch(URI source, String name, String hashFormat, String hash) throws IOException {
+		var stored = pathFor(hashFormat, hash);
+		if (Files.isRegularFile(stored)) return stored;
+
+		var format = HashFormat.fromName(hashFormat);
+		// Two installs wanting the same artifact would otherwise write the same .part file
+		var lock = locks.compute(stored, (k, existing) -> {
+			var held = existing != null ? existing : new Lock();
+			held.users++;
+			return held;
+		});
+		try {
+			synchronized (lock) {
+				if (Files.isRegularFile(stored)) return stored; // The other one got it
+
+				var downloaded = stored.resolveSibling(stored.getFileName() + ".download");
+				try {
+					// Streamable formats are hashed as the bytes arrive
+					var actual = ResumableDownload.download(source, downloaded, format.streamingHasher());
+					if (actual == null) {
+						actual = FileHasher.hash(downloaded, format);
+					}
+					format.verify(name, hash, actual);
+					Files.move(downloaded, stored, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				} finally {
+					Files.deleteIfExists(downloaded);
+				}
+			}
+		} finally {
+			locks.compute(stored, (k, held) -> --held.users == 0 ? null : held);
+		}
+		return stored;
+	}
+
+	/**
+	 * Places a stored artifact at the target path, replacing whatever is there
+	 * @param link Whether to hard link; only for files that are never edited in place (e.g. mod jars), as edits would reach the store
+	 */
+	public void materialize(Path stored, Path target, boolean link) throws IOException {
+		Files.createDirectories(target.getParent());
+		var tempFile = target.resolveSibling(target.getFileName() + ".packwiz-tmp");
+		Files.deleteIfExists(tempFile);
+		try {
+			boolean linked = false;
+			if (link) {
+				try {
+					Files.createLink(tempFile, stored);
+					linked = true;
+				} catch (UnsupportedOperationException | FileSystemException e) {
+					// Different volume, or no hard link support (e.g. FAT32)
+				}
+			}
+			if (!linked) {
+				Files.copy(stored, tempFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+			Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+}
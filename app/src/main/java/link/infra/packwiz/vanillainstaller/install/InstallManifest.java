@@ -0,0 +1,109 @@
+package link.infra.packwiz.vanillainstaller.install;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import link.infra.packwiz.vanillainstaller.util.Debug;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Record of the last index installed into a game directory, so updates only touch files that changed
+ */
+public class InstallManifest {
+	public static final String FILE_NAME = "packwiz-manifest.json";
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+	String indexHash;
+	// Keyed by the path of the file in the index
+	Map<String, Entry> files = new ConcurrentHashMap<>();
+
+	public String getIndexHash() {
+		return indexHash;
+	}
+
+	public Map<String, Entry> getFiles() {
+		return files;
+	}
+
+	public static Path pathFor(Path gameDir) {
+		return gameDir.resolve(FILE_NAME);
+	}
+
+	/**
+	 * @return The manifest of the given game directory, or an empty one if there isn't one (or it can't be read)
+	 */
+	public static InstallManifest read(Path gameDir) {
+		var path = pathFor(gameDir);
+		if (Files.exists(path)) {
+			try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+				var manifest = GSON.fromJson(reader, InstallManifest.class);
+				if (manifest != null && manifest.files != null) {
+					manifest.files = new ConcurrentHashMap<>(manifest.files);
+					return manifest;
+				}
+			} catch (Exception e) { // Corrupt manifests just mean a full install
+				Debug.log("Ignoring the unreadable install manifest %s: %s", path, e);
+			}
+		}
+		return new InstallManifest();
+	}
+
+	public void write(Path gameDir) throws IOException {
+		var path = pathFor(gameDir);
+		Files.createDirectories(gameDir);
+		var tempFile = Files.createTempFile(gameDir, FILE_NAME, ".tmp");
+		try {
+			try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+				GSON.toJson(this, writer);
+			}
+			Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	public static class Entry {
+		// Hash of the file in the index (for metafiles, the hash of the metafile)
+		String hash;
+		String hashFormat;
+		// Where the file ended up, relative to the game directory; null if it wasn't installed (e.g. server-only)
+		String target;
+		long size;
+		// Hash of the installed file itself, used to verify an install
+		String targetHash;
+		String targetHashFormat;
+
+		public Entry(String hash, String hashFormat, String target, long size, String targetHash, String targetHashFormat) {
+			this.hash = hash;
+			this.hashFormat = hashFormat;
+			this.target = target;
+			this.size = size;
+			this.targetHash = targetHash;
+			this.targetHashFormat = targetHashFormat;
+		}
+
+		public String getTarget() {
+			return target;
+		}
+
+		public String getTargetHash() {
+			return targetHash;
+		}
+
+		public String getTargetHashFormat() {
+			return targetHashFormat;
+		}
+
+		public boolean matches(String hash, String hashFormat) {
+			return this.hash != null && this.hash.equalsIgnoreCase(hash) && this.hashFormat != null && this.hashFormat.equalsIgnoreCase(hashFormat);
+		}
+	}
+}
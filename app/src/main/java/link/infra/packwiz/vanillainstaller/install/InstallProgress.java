@@ -0,0 +1,24 @@
+package link.infra.packwiz.vanillainstaller.install;
+
+/**
+ * Receives progress from {@link PackInstaller}; methods may be called from any download thread
+ */
+public interface InstallProgress {
+	InstallProgress NONE = new InstallProgress() {};
+
+	default void onIndexLoaded(int fileCount) {}
+
+	default void onFileInstalled(String path, long bytes) {}
+
+	default void onFileFailed(String path, Throwable error) {}
+
+	/**
+	 * Called for files that are unchanged since the last install
+	 */
+	default void onFileSkipped(String path) {}
+
+	/**
+	 * Called for files from the last install that are no longer part of the pack
+	 */
+	default void onFileRemoved(String path) {}
+}
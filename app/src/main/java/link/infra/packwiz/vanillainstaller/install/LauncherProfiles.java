@@ -0,0 +1,72 @@
+package link.infra.packwiz.vanillainstaller.install;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Adds installations to the official Minecraft Launcher's launcher_profiles.json
+ */
+public class LauncherProfiles {
+	private LauncherProfiles() {}
+
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+	// Several installs in this process may write at once
+	private static final Object LOCK = new Object();
+
+	/**
+	 * Creates or updates the profile with the given id
+	 */
+	public static void addProfile(Path launcherDir, String id, String name, String versionId, Path gameDir) throws IOException {
+		var profilesFile = launcherDir.resolve("launcher_profiles.json");
+		synchronized (LOCK) {
+			// And other processes (e.g. other headless installs) get locked out too
+			try (var lockChannel = FileChannel.open(launcherDir.resolve("launcher_profiles.json.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				lockChannel.lock(); // Released when the channel is closed
+				JsonObject root;
+				if (Files.exists(profilesFile)) {
+					try (Reader reader = Files.newBufferedReader(profilesFile, StandardCharsets.UTF_8)) {
+						root = JsonParser.parseReader(reader).getAsJsonObject();
+					}
+				} else {
+					root = new JsonObject();
+				}
+				if (!root.has("profiles")) root.add("profiles", new JsonObject());
+				var profiles = root.getAsJsonObject("profiles");
+
+				var now = Instant.now().toString();
+				var profile = profiles.has(id) ? profiles.getAsJsonObject(id) : new JsonObject();
+				if (!profile.has("created")) profile.addProperty("created", now);
+				profile.addProperty("name", name);
+				profile.addProperty("type", "custom");
+				profile.addProperty("lastVersionId", versionId);
+				profile.addProperty("gameDir", gameDir.toAbsolutePath().toString());
+				profile.addProperty("lastUsed", now);
+				if (!profile.has("icon")) profile.addProperty("icon", "Furnace");
+				profiles.add(id, profile);
+
+				var tempFile = Files.createTempFile(launcherDir, "launcher_profiles", ".tmp");
+				try {
+					try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+						GSON.toJson(root, writer);
+					}
+					Files.move(tempFile, profilesFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				} finally {
+					Files.deleteIfExists(tempFile);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package link.infra.packwiz.vanillainstaller.install;
+
+import com.google.gson.annotations.SerializedName;
+import com.moandjiezana.toml.Toml;
+import link.infra.packwiz.vanillainstaller.jfr.ParseEvent;
+
+import java.io.InputStream;
+
+/**
+ * A packwiz metafile (.pw.toml), pointing at a file that is downloaded from elsewhere
+ */
+public class ModMetafile {
+	String name;
+	String filename;
+	String side;
+	Download download;
+
+	public String getName() {
+		return name;
+	}
+
+	public String getFilename() {
+		return filename;
+	}
+
+	public String getSide() {
+		return side;
+	}
+
+	public Download getDownload() {
+		return download;
+	}
+
+	public boolean isClientSide() {
+		return side == null || !side.equals("server");
+	}
+
+	public static ModMetafile read(InputStream in) {
+		return ParseEvent.record("metafile", () -> new Toml().read(in).to(ModMetafile.class), meta -> 1);
+	}
+
+	public static class Download {
+		String url;
+		@SerializedName("hash-format")
+		String hashFormat;
+		String hash;
+		String mode;
+
+		public String getUrl() {
+			return url;
+		}
+
+		public String getHashFormat() {
+			return hashFormat;
+		}
+
+		public String getHash() {
+			return hash;
+		}
+
+		/**
+		 * @return The download mode, null for a plain URL download
+		 */
+		public String getMode() {
+			return mode;
+		}
+	}
+}
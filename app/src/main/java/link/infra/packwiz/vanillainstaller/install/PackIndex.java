@@ -0,0 +1,64 @@
+package link.infra.packwiz.vanillainstaller.install;
+
+import com.google.gson.annotations.SerializedName;
+import com.moandjiezana.toml.Toml;
+import link.infra.packwiz.vanillainstaller.jfr.ParseEvent;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * The packwiz index file (index.toml), listing every file in the pack along with its hash
+ */
+public class PackIndex {
+	@SerializedName("hash-format")
+	String hashFormat;
+	List<IndexFile> files;
+
+	public String getHashFormat() {
+		return hashFormat;
+	}
+
+	public List<IndexFile> getFiles() {
+		return files == null ? List.of() : files;
+	}
+
+	public static PackIndex read(InputStream in) {
+		return ParseEvent.record("index.toml", () -> new Toml().read(in).to(PackIndex.class), index -> index.getFiles().size());
+	}
+
+	public static class IndexFile {
+		String file;
+		String hash;
+		@SerializedName("hash-format")
+		String hashFormat;
+		boolean metafile;
+		boolean preserve;
+
+		/**
+		 * @return The path of the file, relative to the index file
+		 */
+		public String getFile() {
+			return file;
+		}
+
+		public String getHash() {
+			return hash;
+		}
+
+		/**
+		 * @return The hash format of this file, falling back to the one of the index
+		 */
+		public String getHashFormat(PackIndex index) {
+			return hashFormat != null ? hashFormat : index.hashFormat;
+		}
+
+		public boolean isMetafile() {
+			return metafile;
+		}
+
+		public boolean isPreserve() {
+			return preserve;
+		}
+	}
+}
@@ -0,0 +1,281 @@
+package link.infra.packwiz.vanillainstaller.install;
+
+import link.infra.packwiz.vanillainstaller.hash.FileHasher;
+import link.infra.packwiz.vanillainstaller.hash.HashFormat;
+import link.infra.packwiz.vanillainstaller.jfr.InstallPhaseEvent;
+import link.infra.packwiz.vanillainstaller.meta.PackMetadataRetriever;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Downloads a pack's index and every file it references into a game directory, with bounded parallelism.
+ * Files are streamed straight to disk and their hashes are checked as the bytes arrive; they go through the shared
+ * {@link ArtifactStore}, so files another instance already has aren't downloaded again.
+ * An {@link InstallManifest} is kept in the game directory so re-installs only fetch, replace or delete what changed.
+ */
+public class PackInstaller {
+	public static final int DEFAULT_PARALLELISM = Integer.getInteger("packwiz.install.parallelism", 8);
+
+	private final URI packUri;
+	private final PackMetadataRetriever.Data pack;
+	private final Path gameDir;
+	private final int parallelism;
+	private final ArtifactStore store;
+
+	public PackInstaller(URI packUri, PackMetadataRetriever.Data pack, Path gameDir) {
+		this(packUri, pack, gameDir, DEFAULT_PARALLELISM);
+	}
+
+	public PackInstaller(URI packUri, PackMetadataRetriever.Data pack, Path gameDir, int parallelism) {
+		this(packUri, pack, gameDir, parallelism, ArtifactStore.getInstance());
+	}
+
+	public PackInstaller(URI packUri, PackMetadataRetriever.Data pack, Path gameDir, int parallelism, ArtifactStore store) {
+		this.packUri = packUri;
+		this.pack = pack;
+		this.gameDir = gameDir.toAbsolutePath().normalize();
+		this.parallelism = Math.max(1, parallelism);
+		this.store = store;
+	}
+
+	public URI getIndexUri() throws IOException {
+		return resolve(packUri, pack.getIndex().getFile());
+	}
+
+	/**
+	 * Downloads and verifies the index file referenced by pack.toml
+	 */
+	public PackIndex fetchIndex() throws IOException {
+		var loc = pack.getIndex();
+		var bytes = fetchVerified(getIndexUri(), loc.getFile(), loc.getHashFormat(), loc.getHash());
+		return PackIndex.read(new ByteArrayInputStream(bytes));
+	}
+
+	/**
+	 * Installs the pack, only transferring what changed since the last install into this game directory
+	 */
+	public void install(InstallProgress progress) throws IOException, InterruptedException {
+		// Phases are timed as JFR events, see FlightRecording
+		var packName = packUri.toString();
+		var phase = new InstallPhaseEvent(packName, "check");
+		var previous = InstallManifest.read(gameDir);
+		var indexHash = pack.getIndex().getHash();
+		boolean upToDate = indexHash != null && indexHash.equalsIgnoreCase(previous.getIndexHash()) && isIntact(previous);
+		phase.finish(previous.getFiles().size());
+		if (upToDate) {
+			progress.onIndexLoaded(0);
+			return; // Nothing changed since last time
+		}
+
+		phase = new InstallPhaseEvent(packName, "index");
+		var index = fetchIndex();
+		var indexUri = getIndexUri();
+		var files = index.getFiles();
+		phase.finish(files.size());
+		progress.onIndexLoaded(files.size());
+
+		phase = new InstallPhaseEvent(packName, "plan");
+
+		var manifest = new InstallManifest();
+		var toInstall = new ArrayList<PackIndex.IndexFile>();
+		for (var file : files) {
+			var old = previous.getFiles().get(file.getFile());
+			if (old != null && old.matches(file.getHash(), file.getHashFormat(index)) && isPresent(old)) {
+				manifest.getFiles().put(file.getFile(), old);
+				progress.onFileSkipped(file.getFile());
+			} else if (file.isPreserve() && !file.isMetafile() && Files.exists(resolveTarget(file.getFile()))) {
+				// Preserved files (e.g. configs) the user already has are left alone
+				manifest.getFiles().put(file.getFile(), new InstallManifest.Entry(file.getHash(), file.getHashFormat(index), file.getFile(), Files.size(resolveTarget(file.getFile())), null, null));
+				progress.onFileSkipped(file.getFile());
+			} else {
+				toInstall.add(file);
+			}
+		}
+		phase.finish(toInstall.size());
+
+		var executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, toInstall.size())), r -> {
+			var thread = new Thread(r, "packwiz-download");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			var futures = new ArrayList<Future<?>>(toInstall.size());
+			for (var file : toInstall) {
+				futures.add(executor.submit(() -> {
+					try {
+						var entry = installFile(index, indexUri, file);
+						manifest.getFiles().put(file.getFile(), entry);
+						progress.onFileInstalled(file.getFile(), entry.size);
+					} catch (IOException | RuntimeException e) {
+						// Keep tracking the old copy, it's still there
+						var old = previous.getFiles().get(file.getFile());
+						if (old != null) manifest.getFiles().put(file.getFile(), old);
+						progress.onFileFailed(file.getFile(), e);
+						throw e;
+					}
+					return null;
+				}));
+			}
+			var transfer = new InstallPhaseEvent(packName, "transfer");
+			try {
+				awaitAll(futures);
+				manifest.indexHash = indexHash; // Only up to date when everything went through
+			} finally {
+				transfer.finish(toInstall.size());
+				var cleanup = new InstallPhaseEvent(packName, "cleanup");
+				removeStale(previous, manifest, progress);
+				manifest.write(gameDir);
+				cleanup.finish(manifest.getFiles().size());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Deletes files from the previous install that are no longer part of the pack
+	 */
+	private void removeStale(InstallManifest previous, InstallManifest current, InstallProgress progress) throws IOException {
+		var currentTargets = new HashSet<String>();
+		for (var entry : current.getFiles().values()) {
+			if (entry.getTarget() != null) currentTargets.add(entry.getTarget());
+		}
+		for (var old : previous.getFiles().entrySet()) {
+			var target = old.getValue().getTarget();
+			if (target == null || currentTargets.contains(target)) continue;
+			if (Files.deleteIfExists(resolveTarget(target))) {
+				progress.onFileRemoved(target);
+			}
+		}
+	}
+
+	/**
+	 * Hashes every installed file in parallel and compares it against what was installed
+	 * @return The paths (relative to the game directory) of files that are missing or don't match
+	 */
+	public List<String> verifyInstalled() throws IOException {
+		var manifest = InstallManifest.read(gameDir);
+		// Batch by format so each batch is a single parallel pass
+		var byFormat = new EnumMap<HashFormat, List<InstallManifest.Entry>>(HashFormat.class);
+		for (var entry : manifest.getFiles().values()) {
+			if (entry.getTarget() == null || entry.getTargetHash() == null) continue; // Skipped or preserved files
+			byFormat.computeIfAbsent(HashFormat.fromName(entry.getTargetHashFormat()), k -> new ArrayList<>()).add(entry);
+		}
+
+		var mismatched = new ArrayList<String>();
+		for (var batch : byFormat.entrySet()) {
+			var paths = new ArrayList<Path>(batch.getValue().size());
+			for (var entry : batch.getValue()) {
+				paths.add(resolveTarget(entry.getTarget()));
+			}
+			var hashes = FileHasher.hashAll(paths, Set.of(batch.getKey()));
+			for (int i = 0; i < paths.size(); i++) {
+				var actual = hashes.get(paths.get(i));
+				var entry = batch.getValue().get(i);
+				if (actual == null || !entry.getTargetHash().equalsIgnoreCase(actual.get(batch.getKey()))) {
+					mismatched.add(entry.getTarget());
+				}
+			}
+		}
+		return mismatched;
+	}
+
+	private boolean isIntact(InstallManifest manifest) throws IOException {
+		if (manifest.getFiles().isEmpty()) return false;
+		for (var entry : manifest.getFiles().values()) {
+			if (!isPresent(entry)) return false;
+		}
+		return true;
+	}
+
+	private boolean isPresent(InstallManifest.Entry entry) throws IOException {
+		if (entry.getTarget() == null) return true; // Not installed on purpose
+		var target = resolveTarget(entry.getTarget());
+		return Files.isRegularFile(target) && Files.size(target) == entry.size;
+	}
+
+	private InstallManifest.Entry installFile(PackIndex index, URI indexUri, PackIndex.IndexFile file) throws IOException {
+		var fileUri = resolve(indexUri, file.getFile());
+		var hashFormat = file.getHashFormat(index);
+
+		if (!file.isMetafile()) {
+			// Plain pack files are often configs that get edited, so they're copied rather than linked
+			long size = download(fileUri, resolveTarget(file.getFile()), file.getFile(), hashFormat, file.getHash(), false);
+			return new InstallManifest.Entry(file.getHash(), hashFormat, file.getFile(), size, file.getHash(), hashFormat);
+		}
+
+		var metaBytes = fetchVerified(fileUri, file.getFile(), hashFormat, file.getHash());
+		var meta = ModMetafile.read(new ByteArrayInputStream(metaBytes));
+		if (!meta.isClientSide()) {
+			return new InstallManifest.Entry(file.getHash(), hashFormat, null, 0, null, null);
+		}
+
+		var download = meta.getDownload();
+		if (download == null || download.getUrl() == null) {
+			throw new IOException("Unsupported download for " + file.getFile() + (download != null && download.getMode() != null ? " (mode " + download.getMode() + ")" : ""));
+		}
+		// Metafiles are placed next to where the metafile is in the pack
+		var parent = Path.of(file.getFile()).getParent();
+		var targetPath = parent == null ? meta.getFilename() : parent.resolve(meta.getFilename()).toString().replace('\\', '/');
+		try {
+			long size = download(new URI(download.getUrl()), resolveTarget(targetPath), targetPath, download.getHashFormat(), download.getHash(), true);
+			return new InstallManifest.Entry(file.getHash(), hashFormat, targetPath, size, download.getHash(), download.getHashFormat());
+		} catch (URISyntaxException e) {
+			throw new IOException("Invalid download URL for " + file.getFile(), e);
+		}
+	}
+
+	private long download(URI source, Path target, String name, String hashFormat, String hash, boolean link) throws IOException {
+		var stored = store.fetch(source, name, hashFormat, hash);
+		store.materialize(stored, target, link);
+		return Files.size(target);
+	}
+
+	private byte[] fetchVerified(URI source, String name, String hashFormat, String hash) throws IOException {
+		// Goes through the store too, so it's resumable and cached like everything else
+		return Files.readAllBytes(store.fetch(source, name, hashFormat, hash));
+	}
+
+	private Path resolveTarget(String relativePath) throws IOException {
+		var target = gameDir.resolve(relativePath).normalize();
+		if (!target.startsWith(gameDir) || target.equals(gameDir)) {
+			throw new IOException("Pack file path escapes the game directory: " + relativePath);
+		}
+		return target;
+	}
+
+	static URI resolve(URI base, String relativePath) throws IOException {
+		try {
+			// Encode the path (spaces etc.) before resolving it against the base
+			return base.resolve(new URI(null, null, relativePath, null));
+		} catch (URISyntaxException e) {
+			throw new IOException("Invalid pack file path: " + relativePath, e);
+		}
+	}
+
+	private static void awaitAll(List<Future<?>> futures) throws IOException, InterruptedException {
+		IOException failure = null;
+		for (var future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				if (failure == null) failure = new IOException("Failed to install pack files");
+				failure.addSuppressed(e.getCause());
+			}
+		}
+		if (failure != null) throw failure;
+	}
+}
@@ -0,0 +1,42 @@
+package link.infra.packwiz.vanillainstaller.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * An HTTP request, from sending it until its body is closed or fully read
+ */
+@Name("packwiz.Fetch")
+@Label("Fetch")
+@Category({"packwiz", "Network"})
+@Description("An HTTP request, from sending it until its body is closed or fully read")
+@StackTrace(false)
+public class FetchEvent extends jdk.jfr.Event {
+	@Label("URL")
+	public String url;
+
+	@Label("Status")
+	@Description("HTTP status, or 0 if the request failed")
+	public int status;
+
+	@Label("Bytes")
+	@Description("Size of the body after decompression")
+	@DataAmount
+	public long bytes;
+
+	@Label("Content Encoding")
+	public String contentEncoding;
+
+	@Label("Time To Headers")
+	@Description("Connecting (including DNS and TLS) and waiting for the response headers")
+	@Timespan
+	public long timeToHeaders;
+
+	@Label("Error")
+	public String error;
+}
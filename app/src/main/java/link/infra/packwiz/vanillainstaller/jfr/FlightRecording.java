@@ -0,0 +1,34 @@
+package link.infra.packwiz.vanillainstaller.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import link.infra.packwiz.vanillainstaller.util.Debug;
+
+import java.nio.file.Path;
+
+/**
+ * Records the whole run to a JFR file with <code>-Dpackwiz.jfr=path/to/file.jfr</code>, using the low overhead
+ * default settings plus the packwiz events; the file is written on exit
+ */
+public class FlightRecording {
+	private FlightRecording() {}
+
+	public static final String PATH = System.getProperty("packwiz.jfr");
+
+	public static void startIfEnabled() {
+		if (PATH == null || PATH.isBlank()) return;
+		try {
+			var recording = new Recording(Configuration.getConfiguration("default"));
+			recording.setName("packwiz");
+			recording.enable(FetchEvent.class);
+			recording.enable(ParseEvent.class);
+			recording.enable(InstallPhaseEvent.class);
+			recording.setDestination(Path.of(PATH));
+			recording.setToDisk(true);
+			recording.setDumpOnExit(true);
+			recording.start();
+		} catch (Exception e) {
+			Debug.log("Failed to start the flight recording to %s: %s", PATH, e);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package link.infra.packwiz.vanillainstaller.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One phase of installing a pack, e.g. planning or downloading
+ */
+@Name("packwiz.InstallPhase")
+@Label("Install Phase")
+@Category({"packwiz", "Install"})
+@Description("One phase of installing a pack")
+@StackTrace(false)
+public class InstallPhaseEvent extends jdk.jfr.Event {
+	@Label("Pack")
+	public String pack;
+
+	@Label("Phase")
+	public String phase;
+
+	@Label("Files")
+	@Description("Files handled in this phase, where that applies")
+	public int files;
+
+	public InstallPhaseEvent(String pack, String phase) {
+		this.pack = pack;
+		this.phase = phase;
+		begin();
+	}
+
+	/**
+	 * Ends the phase and commits it
+	 */
+	public void finish(int files) {
+		this.files = files;
+		commit();
+	}
+}
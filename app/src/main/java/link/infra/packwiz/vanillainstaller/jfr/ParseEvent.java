@@ -0,0 +1,46 @@
+package link.infra.packwiz.vanillainstaller.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Parsing a metadata file; reading the input is included, so for streamed responses it overlaps the fetch
+ */
+@Name("packwiz.Parse")
+@Label("Parse")
+@Category({"packwiz", "Metadata"})
+@Description("Parsing a metadata file, including reading it")
+@StackTrace(false)
+public class ParseEvent extends jdk.jfr.Event {
+	@Label("Format")
+	public String format;
+
+	@Label("Entries")
+	public int entries;
+
+	public interface Parser<T, E extends Exception> {
+		T parse() throws E;
+	}
+
+	/**
+	 * Runs a parser inside a parse event
+	 * @param entries Counts the entries of the result
+	 */
+	public static <T, E extends Exception> T record(String format, Parser<T, E> parser, ToIntFunction<? super T> entries) throws E {
+		var event = new ParseEvent();
+		event.begin();
+		var result = parser.parse();
+		event.end();
+		if (event.shouldCommit()) {
+			event.format = format;
+			event.entries = entries.applyAsInt(result);
+			event.commit();
+		}
+		return result;
+	}
+}
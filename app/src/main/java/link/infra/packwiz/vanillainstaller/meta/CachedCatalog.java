@@ -0,0 +1,251 @@
+package link.infra.packwiz.vanillainstaller.meta;
+
+import link.infra.packwiz.vanillainstaller.hash.HashFormat;
+import link.infra.packwiz.vanillainstaller.net.HttpCache;
+import link.infra.packwiz.vanillainstaller.util.Debug;
+import link.infra.packwiz.vanillainstaller.util.PathUtils;
+import link.infra.packwiz.vanillainstaller.util.SingleFlight;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A version catalog that's available straight away, stale-while-revalidate: it's first served from whichever local
+ * copy is newer, the HTTP cache or the snapshot bundled in the jar at build time, then revalidated in the background,
+ * and again when used ten minutes or more after that. Listeners are told when revalidation turns up
+ * something different. Without a local copy the first request waits for the network.
+ * <p>
+ * Whatever is parsed is written out as a binary {@link VersionCatalog}, so later starts just memory-map that instead
+ * of parsing the source again.
+ */
+public class CachedCatalog {
+	private static final String SNAPSHOT_DIR = "/metadata-snapshot/";
+	private static final Path CATALOG_DIR = PathUtils.getPackwizUserPath().resolve("cache").resolve("catalogs");
+	// An installer left open picks up new versions without a refresh; usually just a 304
+	private static final long REVALIDATE_INTERVAL = 10 * 60_000;
+	// When each bundled snapshot was downloaded; loaded on first use
+	private static Properties snapshotTimes = null;
+
+	public interface Parser {
+		VersionCatalog.Builder parse(InputStream in) throws Exception;
+	}
+
+	private final URL url;
+	private final String snapshotName;
+	private final Parser parser;
+	private final SingleFlight<VersionCatalog> local = new SingleFlight<>(this::readLocal);
+	private final SingleFlight<VersionCatalog> remote = new SingleFlight<>(this::readRemote);
+	private final AtomicBoolean revalidating = new AtomicBoolean(false);
+	// When the last fetch from the network finished, successfully or not
+	private volatile long fetchedAt = 0;
+	private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+	private volatile VersionCatalog current = null;
+
+	/**
+	 * @param snapshotName The name of the bundled snapshot, see the generateMetadataSnapshot task; also names the
+	 *                     compiled catalog
+	 */
+	public CachedCatalog(URL url, String snapshotName, Parser parser) {
+		this.url = url;
+		this.snapshotName = snapshotName;
+		this.parser = parser;
+	}
+
+	public CompletableFuture<VersionCatalog> get() {
+		var known = current;
+		if (known != null) {
+			revalidate();
+			return CompletableFuture.completedFuture(known);
+		}
+		return local.get().exceptionally(e -> {
+			Debug.log("Failed to load the local copy of %s: %s", snapshotName, e);
+			return null;
+		}).thenCompose(version -> {
+			if (version != null) {
+				offer(version);
+				revalidate();
+				return CompletableFuture.completedFuture(current);
+			}
+			return fetchRemote().thenApply(fetched -> {
+				offer(fetched);
+				return current;
+			});
+		});
+	}
+
+	/**
+	 * Called (on a background thread) when revalidating changed the catalog after it was served
+	 */
+	public void addChangeListener(Runnable listener) {
+		listeners.add(listener);
+	}
+
+	public void removeChangeListener(Runnable listener) {
+		listeners.remove(listener);
+	}
+
+	private void revalidate() {
+		if (System.currentTimeMillis() - fetchedAt < REVALIDATE_INTERVAL) return;
+		if (!revalidating.compareAndSet(false, true)) return;
+		long start = System.nanoTime();
+		fetchRemote().whenComplete((fetched, e) -> {
+			revalidating.set(false);
+			if (e != null) { // Keep serving the local copy
+				Debug.log("Failed to revalidate %s: %s", snapshotName, e);
+				return;
+			}
+			boolean changed = offer(fetched);
+			Debug.log("Revalidated %s in %d ms (%s)", snapshotName, (System.nanoTime() - start) / 1_000_000, changed ? "changed" : "unchanged");
+			if (changed) {
+				for (var listener : listeners) listener.run();
+			}
+		});
+	}
+
+	/**
+	 * Fetches from the network, sharing a fetch already in flight; once it's done, the next call fetches again
+	 */
+	private CompletableFuture<VersionCatalog> fetchRemote() {
+		var fetch = remote.get();
+		// Callers only see it done once it's forgotten
+		return fetch.whenComplete((fetched, e) -> {
+			fetchedAt = System.currentTimeMillis();
+			remote.reset(fetch);
+		});
+	}
+
+	/**
+	 * @return Whether this replaced a different version that was already served
+	 */
+	private synchronized boolean offer(VersionCatalog catalog) {
+		var old = current;
+		if (old != null && old.getSourceHash().equals(catalog.getSourceHash())) return false;
+		current = catalog;
+		return old != null;
+	}
+
+	private VersionCatalog readLocal() throws Exception {
+		long start = System.nanoTime();
+		var cached = HttpCache.getInstance().peek(url);
+		long snapshotTime = getSnapshotTime(snapshotName);
+		var compiled = findCompiled();
+		VersionCatalog catalog;
+		String from;
+		if (compiled != null && compiled.getSourceTime() >= Math.max(snapshotTime, cached != null ? cached.storedAt() : 0)) {
+			catalog = compiled;
+			from = "compiled catalog";
+		} else if (cached != null && cached.storedAt() >= snapshotTime) {
+			catalog = compile(Files.readAllBytes(cached.file()), cached.storedAt());
+			from = "cache";
+		} else if (snapshotTime > 0) {
+			try (var in = new GZIPInputStream(CachedCatalog.class.getResourceAsStream(SNAPSHOT_DIR + snapshotName + ".gz"))) {
+				catalog = compile(in.readAllBytes(), snapshotTime);
+			}
+			from = "snapshot";
+		} else {
+			return compiled;
+		}
+		Debug.log("Loaded %s from the %s in %d ms", snapshotName, from, (System.nanoTime() - start) / 1_000_000);
+		return catalog;
+	}
+
+	private VersionCatalog readRemote() throws Exception {
+		byte[] content;
+		try (var in = HttpCache.getInstance().open(url)) {
+			content = in.readAllBytes();
+		}
+		var known = current;
+		// Unchanged, so there's no need to parse it again
+		if (known != null && known.getSourceHash().equals(HashFormat.SHA256.hash(content))) return known;
+		return compile(content, System.currentTimeMillis());
+	}
+
+	/**
+	 * Parses a source and writes it out as a compiled catalog, mapping that
+	 */
+	private VersionCatalog compile(byte[] content, long sourceTime) throws Exception {
+		var hash = HashFormat.SHA256.hash(content);
+		var encoded = parser.parse(new ByteArrayInputStream(content)).encode(sourceTime, hash);
+		// Named by content, so a catalog that's mapped is never overwritten
+		var file = CATALOG_DIR.resolve(snapshotName + "-" + hash.substring(0, 16) + ".bin");
+		try {
+			Files.createDirectories(CATALOG_DIR);
+			var tempFile = Files.createTempFile(CATALOG_DIR, file.getFileName().toString(), ".tmp");
+			try {
+				try (var channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+					while (encoded.hasRemaining()) channel.write(encoded);
+				}
+				Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tempFile);
+			}
+			var catalog = VersionCatalog.map(file);
+			deleteCompiled(file);
+			return catalog;
+		} catch (IOException e) { // Still usable, it just gets parsed again next time
+			Debug.log("Failed to write the %s catalog: %s", snapshotName, e);
+			return VersionCatalog.of(encoded.rewind());
+		}
+	}
+
+	/**
+	 * @return The newest compiled catalog, or null if there isn't one
+	 */
+	private VersionCatalog findCompiled() throws IOException {
+		if (!Files.isDirectory(CATALOG_DIR)) return null;
+		VersionCatalog newest = null;
+		try (var files = Files.newDirectoryStream(CATALOG_DIR, snapshotName + "-*.bin")) {
+			for (var file : files) {
+				try {
+					var catalog = VersionCatalog.map(file);
+					if (newest == null || catalog.getSourceTime() > newest.getSourceTime()) newest = catalog;
+				} catch (IOException e) { // Corrupt or from another version, it'll be replaced
+					Debug.log("Ignoring catalog %s: %s", file, e);
+				}
+			}
+		}
+		return newest;
+	}
+
+	/**
+	 * Deletes the other compiled catalogs of this source; files still mapped elsewhere might not be deletable yet
+	 */
+	private void deleteCompiled(Path keep) {
+		try (var files = Files.newDirectoryStream(CATALOG_DIR, snapshotName + "-*.bin")) {
+			for (var file : files) {
+				if (file.equals(keep)) continue;
+				try {
+					Files.deleteIfExists(file);
+				} catch (IOException ignored) {}
+			}
+		} catch (IOException ignored) {}
+	}
+
+	/**
+	 * @return When the bundled snapshot was downloaded, or 0 if there isn't one
+	 */
+	private static synchronized long getSnapshotTime(String name) throws IOException {
+		if (snapshotTimes == null) {
+			snapshotTimes = new Properties();
+			try (var in = CachedCatalog.class.getResourceAsStream(SNAPSHOT_DIR + "index.properties")) {
+				if (in != null) snapshotTimes.load(in);
+			}
+		}
+		var time = snapshotTimes.getProperty(name);
+		if (time == null || CachedCatalog.class.getResource(SNAPSHOT_DIR + name + ".gz") == null) return 0;
+		return Long.parseLong(time);
+	}
+}
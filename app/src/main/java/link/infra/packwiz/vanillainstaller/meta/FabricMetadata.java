@@ -1,16 +1,13 @@
 package link.infra.packwiz.vanillainstaller.meta;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonParser;
-import com.google.gson.reflect.TypeToken;
+import link.infra.packwiz.vanillainstaller.jfr.ParseEvent;
 
-import java.io.IOException;
 import java.io.InputStreamReader;
-import java.lang.reflect.Type;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class FabricMetadata implements LoaderMetadataGetter {
 	public static String API_URL = "https://meta.fabricmc.net";
@@ -26,8 +23,6 @@ public class FabricMetadata implements LoaderMetadataGetter {
 		}
 	}
 
-	private Gson gson = new Gson();
-
 	public FabricMetadata() {}
 
 	public String getLoaderName() {
@@ -35,109 +30,41 @@ public class FabricMetadata implements LoaderMetadataGetter {
 	}
 
 	// TODO: call fabric installer code
-	// TODO: could run off-thread with a swingworker?
 
 	// Using Fabric's API for this ensures we don't get versions unsupported by Fabric
-	private class GameVersion {
-		private String version;
-		private boolean stable;
-		public String getVersion() {
-			return version;
-		}
-		public void setVersion(String version) {
-			this.version = version;
-		}
-		public boolean isStable() {
-			return stable;
-		}
-		public void setStable(boolean stable) {
-			this.stable = stable;
-		}
-	}
-
-	private List<GameVersion> gameVersions = null;
+	private final CachedCatalog gameVersions = new CachedCatalog(GAME_API, "fabric-game",
+		in -> VersionCatalog.builder().addGroup(VersionCatalog.UNGROUPED,
+			ParseEvent.record("fabric-game", () -> VersionList.read(new InputStreamReader(in, StandardCharsets.UTF_8)), VersionList::size)));
 
 	@Override
-	public List<String> getMinecraftVersions(boolean stableOnly) {
-		if (gameVersions == null)
-			try {
-				Type listType = new TypeToken<ArrayList<GameVersion>>(){}.getType();
-				gameVersions = gson.fromJson(new InputStreamReader(GAME_API.openStream()), listType);
-			} catch (IOException e) {
-				throw new RuntimeException(e);
-			}
-		return gameVersions.stream()
-				.filter(v -> v.isStable() || !stableOnly)
-				.map(GameVersion::getVersion)
-				.toList();
+	public CompletableFuture<List<String>> getMinecraftVersionsAsync(boolean stableOnly) {
+		return gameVersions.get().thenApply(catalog -> catalog.get(stableOnly));
 	}
 
-	private class YarnVersion {
-		private String version;
-		private boolean stable;
-		private String separator;
-		private int build;
-		private String maven;
-		private String gameVersion;
-		public String getVersion() {
-			return version;
-		}
-		public void setVersion(String version) {
-			this.version = version;
-		}
-		public boolean isStable() {
-			return stable;
-		}
-		public void setStable(boolean stable) {
-			this.stable = stable;
-		}
-
-		public String getSeparator() {
-			return separator;
-		}
-
-		public void setSeparator(String separator) {
-			this.separator = separator;
-		}
+	// Grouped by game version while parsing, so lookups don't need to filter the whole list
+	private final CachedCatalog yarnVersions = new CachedCatalog(YARN_API, "fabric-yarn",
+		in -> VersionCatalog.builder().sortNewestFirst().addGroups(
+			ParseEvent.record("fabric-yarn", () -> VersionList.readGrouped(new InputStreamReader(in, StandardCharsets.UTF_8)), VersionList::totalSize)));
 
-		public int getBuild() {
-			return build;
-		}
-
-		public void setBuild(int build) {
-			this.build = build;
-		}
-
-		public String getMaven() {
-			return maven;
-		}
-
-		public void setMaven(String maven) {
-			this.maven = maven;
-		}
+	@Override
+	public CompletableFuture<List<String>> getLoaderVersionsAsync(String mcVersion, boolean stableOnly) {
+		return yarnVersions.get().thenApply(catalog -> catalog.get(mcVersion, stableOnly));
+	}
 
-		public String getGameVersion() {
-			return gameVersion;
-		}
+	@Override
+	public CompletableFuture<VersionOrderIndex> getVersionOrderAsync() {
+		return yarnVersions.get().thenApply(VersionCatalog::getOrderIndex);
+	}
 
-		public void setGameVersion(String gameVersion) {
-			this.gameVersion = gameVersion;
-		}
+	@Override
+	public void addChangeListener(Runnable listener) {
+		gameVersions.addChangeListener(listener);
+		yarnVersions.addChangeListener(listener);
 	}
 
-	private List<YarnVersion> yarnVersions = null;
 	@Override
-	public List<String> getLoaderVersions(String mcVersion, boolean stableOnly) {
-		if (yarnVersions == null)
-			try {
-				Type listType = new TypeToken<ArrayList<YarnVersion>>(){}.getType();
-				yarnVersions = gson.fromJson(new InputStreamReader(YARN_API.openStream()), listType);
-			} catch (IOException e) {
-				throw new RuntimeException(e);
-			}
-		return yarnVersions.stream()
-			.filter(v -> (v.isStable() || !stableOnly) && v.getGameVersion().equals(mcVersion))
-			.map(YarnVersion::getVersion)
-			.toList();
+	public void removeChangeListener(Runnable listener) {
+		gameVersions.removeChangeListener(listener);
+		yarnVersions.removeChangeListener(listener);
 	}
 }
@@ -0,0 +1,83 @@
+package link.infra.packwiz.vanillainstaller.meta;
+
+import org.apache.commons.io.input.BOMInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable index of Forge versions grouped by Minecraft version, built in a single streaming pass over maven-metadata.xml
+ */
+public final class ForgeVersionIndex {
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final Map<String, List<String>> versions;
+    private final List<String> minecraftVersions;
+
+    private ForgeVersionIndex(Map<String, List<String>> versions) {
+        this.versions = versions;
+        this.minecraftVersions = List.copyOf(versions.keySet());
+    }
+
+    public static ForgeVersionIndex parse(InputStream in) throws XMLStreamException {
+        // Keeps the order of the metadata file, same as the old DOM path did
+        var versions = new LinkedHashMap<String, List<String>>();
+
+        XMLStreamReader reader;
+        synchronized (XML_INPUT_FACTORY) { // Factories aren't guaranteed to be thread safe
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(new BOMInputStream(in));
+        }
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT || !reader.getLocalName().equals("version")) continue;
+
+                var version = reader.getElementText().trim();
+                // <mc version>-<forge version>, split on the first dash
+                int split = version.indexOf('-');
+                if (split < 0) continue;
+                versions.computeIfAbsent(version.substring(0, split), k -> new ArrayList<>())
+                        .add(version.substring(split + 1));
+            }
+        } finally {
+            reader.close();
+        }
+
+        var frozen = new LinkedHashMap<String, List<String>>(versions.size() * 2);
+        versions.forEach((mc, forge) -> frozen.put(mc, List.copyOf(forge)));
+        return new ForgeVersionIndex(Collections.unmodifiableMap(frozen));
+    }
+
+    public List<String> getMinecraftVersions() {
+        return minecraftVersions;
+    }
+
+    public List<String> getForgeVersions(String mcVersion) {
+        return versions.getOrDefault(mcVersion, List.of());
+    }
+
+    public Map<String, List<String>> asMap() {
+        return versions;
+    }
+
+    /**
+     * @return The number of Forge versions, for every Minecraft version
+     */
+    public int size() {
+        int size = 0;
+        for (var forge : versions.values()) size += forge.size();
+        return size;
+    }
+}
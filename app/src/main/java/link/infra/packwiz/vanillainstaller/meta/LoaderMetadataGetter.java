@@ -1,9 +1,36 @@
 package link.infra.packwiz.vanillainstaller.meta;
 
+import link.infra.packwiz.vanillainstaller.util.SingleFlight;
+
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Implementations must be safe to share between threads; concurrent requests for the same list share one fetch.
+ */
 public interface LoaderMetadataGetter {
     String getLoaderName();
-    List<String> getMinecraftVersions(boolean stableOnly);
-    List<String> getLoaderVersions(String mcVersion, boolean stableOnly);
+    CompletableFuture<List<String>> getMinecraftVersionsAsync(boolean stableOnly);
+    CompletableFuture<List<String>> getLoaderVersionsAsync(String mcVersion, boolean stableOnly);
+
+    /**
+     * @return The Minecraft versions this loader has versions for, in order, for "latest" and range queries
+     */
+    CompletableFuture<VersionOrderIndex> getVersionOrderAsync();
+
+    /**
+     * Lists can be served from a local copy and updated in the background; the listener is called (on a background
+     * thread) when that changes a list that was already served
+     */
+    default void addChangeListener(Runnable listener) {}
+
+    default void removeChangeListener(Runnable listener) {}
+
+    default List<String> getMinecraftVersions(boolean stableOnly) {
+        return SingleFlight.join(getMinecraftVersionsAsync(stableOnly));
+    }
+
+    default List<String> getLoaderVersions(String mcVersion, boolean stableOnly) {
+        return SingleFlight.join(getLoaderVersionsAsync(mcVersion, stableOnly));
+    }
 }
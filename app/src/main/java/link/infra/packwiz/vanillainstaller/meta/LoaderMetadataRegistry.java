@@ -0,0 +1,112 @@
+package link.infra.packwiz.vanillainstaller.meta;
+
+import link.infra.packwiz.vanillainstaller.util.Debug;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide holder of one {@link LoaderMetadataGetter} per loader, so switching loaders reuses
+ * already fetched metadata instead of starting over.
+ */
+public final class LoaderMetadataRegistry {
+	private static final LoaderMetadataRegistry INSTANCE = new LoaderMetadataRegistry();
+
+	public static LoaderMetadataRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	// The loaders a pack can declare in its [versions] table, in the order they're shown. Lambdas rather than classes,
+	// so a loader's classes aren't loaded until it's actually used
+	private static final Map<String, Supplier<LoaderMetadataGetter>> FACTORIES = new LinkedHashMap<>();
+
+	static {
+		FACTORIES.put("fabric", () -> new FabricMetadata());
+		FACTORIES.put("quilt", () -> new QuiltMetadata());
+		FACTORIES.put("forge", () -> new ForgeMetadata());
+	}
+
+	private static final List<String> LOADER_NAMES = List.copyOf(FACTORIES.keySet());
+
+	public static List<String> getLoaderNames() {
+		return LOADER_NAMES;
+	}
+
+	// Along with the listener forwarding its changes, so it can be detached when the getter is dropped
+	private record Held(LoaderMetadataGetter getter, Runnable listener) {}
+
+	private final Map<String, Held> getters = new ConcurrentHashMap<>();
+	private final List<Consumer<LoaderMetadataGetter>> changeListeners = new CopyOnWriteArrayList<>();
+
+	private LoaderMetadataRegistry() {}
+
+	/**
+	 * @return The getter for a loader as named in pack.toml, or null if it isn't one we know
+	 */
+	public LoaderMetadataGetter get(String loaderName) {
+		var factory = FACTORIES.get(loaderName);
+		return factory == null ? null : getters.computeIfAbsent(loaderName, n -> {
+			var getter = factory.get();
+			Runnable listener = () -> changeListeners.forEach(l -> l.accept(getter));
+			getter.addChangeListener(listener);
+			return new Held(getter, listener);
+		}).getter();
+	}
+
+	/**
+	 * Listens for any getter's lists changing after they were served, see {@link LoaderMetadataGetter#addChangeListener}
+	 */
+	public void addChangeListener(Consumer<LoaderMetadataGetter> listener) {
+		changeListeners.add(listener);
+	}
+
+	/**
+	 * Drops the held getter for the given loader, so the next {@link #get} starts from scratch
+	 */
+	public void invalidate(String loaderName) {
+		var held = getters.remove(loaderName);
+		if (held != null) held.getter().removeChangeListener(held.listener());
+	}
+
+	/**
+	 * @return The newest Minecraft version every one of the given loaders has versions for, or null if there's none
+	 */
+	public CompletableFuture<String> getNewestCommonMinecraftVersionAsync(Collection<String> loaderNames, boolean stableOnly) {
+		var orders = new ArrayList<CompletableFuture<VersionOrderIndex>>();
+		for (var loaderName : loaderNames) {
+			var getter = get(loaderName);
+			if (getter != null) orders.add(getter.getVersionOrderAsync());
+		}
+		return CompletableFuture.allOf(orders.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+			var indexes = new ArrayList<VersionOrderIndex>(orders.size());
+			for (var order : orders) indexes.add(order.join());
+			return VersionOrderIndex.getNewestCommonMinecraftVersion(indexes, stableOnly);
+		});
+	}
+
+	/**
+	 * Starts fetching the game version lists of all the given loaders concurrently
+	 */
+	public void prefetch(Collection<String> loaderNames) {
+		for (var loaderName : loaderNames) {
+			long start = System.nanoTime();
+			var getter = get(loaderName);
+			if (getter == null) continue;
+			getter.getMinecraftVersionsAsync(false).whenComplete((versions, e) -> {
+				if (e == null) {
+					Debug.log("Prefetched %s game versions in %d ms", getter.getLoaderName(), (System.nanoTime() - start) / 1_000_000);
+				} else { // The UI reports errors when it actually asks for the list
+					Debug.log("Failed to prefetch %s game versions: %s", getter.getLoaderName(), e);
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package link.infra.packwiz.vanillainstaller.meta;
+
+import com.google.gson.Gson;
+import link.infra.packwiz.vanillainstaller.hash.HashFormat;
+import link.infra.packwiz.vanillainstaller.net.BoundedFetch;
+import link.infra.packwiz.vanillainstaller.net.HttpTransport;
+import link.infra.packwiz.vanillainstaller.util.PathUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of parsed pack.toml files, in memory and on disk. Entries are keyed by URI, and the parsed (immutable)
+ * {@link PackMetadataRetriever.Data} is shared by content hash, so the same pack.toml is only ever parsed once.
+ * Fetching a cached pack sends a conditional request, so finding out it hasn't changed costs a single 304.
+ */
+public class PackDataCache {
+	private static final PackDataCache INSTANCE = new PackDataCache(PathUtils.getPackwizUserPath().resolve("cache").resolve("packs"));
+
+	public static PackDataCache getInstance() {
+		return INSTANCE;
+	}
+
+	private final Gson gson = new Gson();
+	private final Path cacheDir;
+	private final Map<URI, Entry> byUri = new ConcurrentHashMap<>();
+	private final Map<String, PackMetadataRetriever.Data> byHash = new ConcurrentHashMap<>();
+
+	public PackDataCache(Path cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * A fetched pack.toml; <code>hash</code> is the SHA-256 of its contents
+	 */
+	public record Entry(URI uri, String hash, String etag, String lastModified, PackMetadataRetriever.Data data) {}
+
+	/**
+	 * @return The entry for a URI if it's been fetched in this session, without touching the disk or network
+	 */
+	public Entry getInMemory(URI uri) {
+		return byUri.get(uri);
+	}
+
+	/**
+	 * Fetches a pack.toml, conditionally if it's cached (in memory or on disk).
+	 * When it hasn't changed, the result has the same hash and data as the cached entry.
+	 */
+	public CompletableFuture<Entry> fetch(URI uri) {
+		var cached = new Entry[1];
+		return BoundedFetch.packs().fetch(uri, () -> {
+			cached[0] = lookup(uri);
+			var headers = new HashMap<String, String>();
+			if (cached[0] != null) {
+				if (cached[0].etag() != null) headers.put("If-None-Match", cached[0].etag());
+				if (cached[0].lastModified() != null) headers.put("If-Modified-Since", cached[0].lastModified());
+			}
+			return headers;
+		}, response -> read(uri, cached[0], response));
+	}
+
+	private Entry read(URI uri, Entry cached, HttpTransport.Response response) throws IOException {
+		if (response.status() == 304 && cached != null) {
+			return cached;
+		}
+		if (response.status() != 200) {
+			throw new IOException("Unexpected response " + response.status() + " from " + uri);
+		}
+
+		var content = response.body().readAllBytes();
+		var hash = HashFormat.SHA256.hash(content);
+		var data = cached != null && cached.hash().equals(hash) ? cached.data() : parse(hash, content);
+		var entry = new Entry(uri, hash, response.header("ETag"), response.header("Last-Modified"), data);
+		byUri.put(uri, entry);
+		if (cached == null || !cached.hash().equals(hash) || !sameValidators(cached, entry)) {
+			store(entry, content);
+		}
+		return entry;
+	}
+
+	private PackMetadataRetriever.Data parse(String hash, byte[] content) {
+		return byHash.computeIfAbsent(hash, h -> PackMetadataRetriever.parse(new ByteArrayInputStream(content)));
+	}
+
+	private Entry lookup(URI uri) {
+		var entry = byUri.get(uri);
+		if (entry != null) return entry;
+
+		var file = fileFor(uri);
+		if (!Files.exists(file)) return null;
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			var stored = gson.fromJson(reader, StoredEntry.class);
+			if (stored == null || stored.content == null || !uri.toString().equals(stored.uri)) return null;
+			var content = stored.content.getBytes(StandardCharsets.UTF_8);
+			var hash = HashFormat.SHA256.hash(content);
+			entry = new Entry(uri, hash, stored.etag, stored.lastModified, parse(hash, content));
+			byUri.putIfAbsent(uri, entry);
+			return entry;
+		} catch (Exception e) { // Corrupt entries are just refetched
+			return null;
+		}
+	}
+
+	private void store(Entry entry, byte[] content) throws IOException {
+		var stored = new StoredEntry();
+		stored.uri = entry.uri().toString();
+		stored.etag = entry.etag();
+		stored.lastModified = entry.lastModified();
+		stored.content = new String(content, StandardCharsets.UTF_8);
+
+		Files.createDirectories(cacheDir);
+		var file = fileFor(entry.uri());
+		var tempFile = Files.createTempFile(cacheDir, file.getFileName().toString(), ".tmp");
+		try {
+			try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+				gson.toJson(stored, writer);
+			}
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private Path fileFor(URI uri) {
+		return cacheDir.resolve(HashFormat.SHA1.hash(uri.toString().getBytes(StandardCharsets.UTF_8)) + ".json");
+	}
+
+	private static boolean sameValidators(Entry a, Entry b) {
+		return Objects.equals(a.etag(), b.etag()) && Objects.equals(a.lastModified(), b.lastModified());
+	}
+
+	private static class StoredEntry {
+		String uri;
+		String etag;
+		String lastModified;
+		// The raw pack.toml; it's small, and parsing it again is cheaper than keeping a second format in sync
+		String content;
+	}
+}
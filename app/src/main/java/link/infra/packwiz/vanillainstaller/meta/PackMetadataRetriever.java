@@ -1,24 +1,30 @@
 package link.infra.packwiz.vanillainstaller.meta;
 
+import com.google.gson.annotations.SerializedName;
 import com.moandjiezana.toml.Toml;
+import link.infra.packwiz.vanillainstaller.jfr.ParseEvent;
+import link.infra.packwiz.vanillainstaller.util.Debug;
 
-import javax.swing.*;
 import java.awt.*;
-import java.beans.PropertyChangeEvent;
-import java.beans.PropertyChangeListener;
-import java.io.FileInputStream;
 import java.io.InputStream;
 import java.net.URI;
-import java.net.URISyntaxException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public abstract class PackMetadataRetriever {
+	// Checking for updates more often than this isn't worth a request
+	private static final long UPDATE_CHECK_INTERVAL = 60_000;
+
 	private URI packUri = null;
 	private Data data = null;
-	private MetadataRetrieverTask task = null;
+	private PackDataCache.Entry entry = null;
+	private Bootstrap bootstrap = null;
+	private CompletableFuture<PackDataCache.Entry> task = null;
+	private long lastChecked = 0;
 
 	/**
 	 * @return True when new data was fetched
@@ -28,25 +34,20 @@ public abstract class PackMetadataRetriever {
 
 		if (!packUri.equals(this.packUri)) {
 			data = null;
+			entry = null;
+			replaceBootstrap(null);
 			this.packUri = packUri;
 
-			// TODO: mechanisms for progress/result
-			if (task != null) {
-				if (!task.isDone()) task.cancel(true);
+			// TODO: progress
+			var cached = PackDataCache.getInstance().getInMemory(packUri);
+			fetch(packUri, cached);
+			if (cached != null) {
+				// Known pack: show it straight away, the fetch only checks whether it changed since
+				var fetch = task;
+				EventQueue.invokeLater(() -> {
+					if (task == fetch && entry == null) loaded(cached);
+				});
 			}
-			task = new MetadataRetrieverTask(packUri);
-			task.execute();
-			task.addPropertyChangeListener(evt -> {
-				if (evt.getPropertyName().equals("state") && evt.getNewValue() == SwingWorker.StateValue.DONE) {
-					// Finished!
-					try {
-						data = task.get();
-						onDataUpdated(data);
-					} catch (InterruptedException | ExecutionException e) {
-						throw new RuntimeException(e); // Shouldn't happen but I'll leave it just in case
-					}
-				}
-			});
 
 			return true;
 		}
@@ -54,35 +55,158 @@ public abstract class PackMetadataRetriever {
 		return false;
 	}
 
+	/**
+	 * Checks in the background whether the current pack changed, which costs a single 304 when it didn't;
+	 * {@link #onDataUpdated} is called again if it did
+	 */
+	public void checkForUpdate() {
+		assert EventQueue.isDispatchThread();
+
+		if (entry == null || (task != null && !task.isDone())) return;
+		if (System.currentTimeMillis() - lastChecked < UPDATE_CHECK_INTERVAL) return;
+		fetch(packUri, entry);
+	}
+
+	private void fetch(URI packUri, PackDataCache.Entry known) {
+		if (task != null) {
+			task.cancel(true); // Aborts the fetch, closing its connection
+		}
+		lastChecked = System.currentTimeMillis();
+		var fetch = PackDataCache.getInstance().fetch(packUri);
+		task = fetch;
+		fetch.whenComplete((result, error) -> EventQueue.invokeLater(() -> {
+			if (task != fetch) return; // Superseded by another URL
+			if (error == null) {
+				// Unchanged packs keep their data (and bootstrap) as is
+				if (known == null || entry == null || !result.hash().equals(entry.hash())) {
+					loaded(result);
+				} else {
+					entry = result;
+				}
+			} else if (known == null) {
+				// Forget the URL, so retrying it fetches it again
+				this.packUri = null;
+				onDataFailed(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+			}
+			// Failing to check a pack we already have isn't worth bothering the user about
+		}));
+	}
+
+	private void loaded(PackDataCache.Entry entry) {
+		this.entry = entry;
+		data = entry.data();
+		replaceBootstrap(new Bootstrap(data));
+		onDataUpdated(data);
+	}
+
+	private void replaceBootstrap(Bootstrap replacement) {
+		if (bootstrap != null) bootstrap.cancel();
+		bootstrap = replacement;
+	}
+
 	public abstract void onDataUpdated(Data data);
 
+	public void onDataFailed(Throwable error) {}
+
 	public Data getData() {
 		return data;
 	}
 
-	private static class MetadataRetrieverTask extends SwingWorker<Data, Float> {
-		private URI uri;
-		public MetadataRetrieverTask(URI uri) {
-			this.uri = uri;
-		}
-
-		@Override
-		protected Data doInBackground() throws Exception {
-			InputStream fileStream = null;
-			switch (uri.getScheme()) {
-				case "http":
-				case "https":
-					fileStream = uri.toURL().openStream();
-					break;
-				case "file":
-					fileStream = new FileInputStream(Paths.get(uri).toFile());
-					break;
-				default:
-					throw new Exception("Invalid URL scheme supplied: " + uri.getScheme()); // Perhaps a custom exception class?
+	/**
+	 * @return The fetches started for the current pack, or null if it isn't loaded yet
+	 */
+	public Bootstrap getBootstrap() {
+		return bootstrap;
+	}
+
+	/**
+	 * Parses a pack.toml file
+	 */
+	public static Data parse(InputStream in) {
+		return ParseEvent.record("pack.toml", () -> {
+			var data = new Toml().read(in).to(Data.class);
+			// Parsed packs are cached and shared, so they must never change
+			if (data.versions != null) data.versions = Collections.unmodifiableMap(new LinkedHashMap<>(data.versions));
+			return data;
+		}, data -> data.versions != null ? data.versions.size() : 0);
+	}
+
+	/**
+	 * Everything a pack needs after its pack.toml, started in parallel as soon as it's parsed rather than one after
+	 * another as the UI gets to each step: the declared loader's Minecraft and loader versions.
+	 * The lists go through the shared {@link LoaderMetadataRegistry} getters, so the UI asking for them later joins
+	 * these fetches instead of starting its own. Started as soon as the pack is loaded, whether fetched or cached.
+	 * The index isn't fetched here, as the installer fetches it itself.
+	 */
+	public static class Bootstrap {
+		private final Data data;
+		private final LoaderMetadataGetter loader;
+		private final CompletableFuture<List<String>> minecraftVersions;
+		private final CompletableFuture<List<String>> loaderVersions;
+
+		Bootstrap(Data data) {
+			this.data = data;
+			long start = System.nanoTime();
+
+			var versions = data.getVersions() == null ? Map.<String, String>of() : data.getVersions();
+			LoaderMetadataGetter declared = null;
+			for (var entry : versions.entrySet()) {
+				declared = LoaderMetadataRegistry.getInstance().get(entry.getKey());
+				if (declared != null) break;
+			}
+			loader = declared;
+			var mcVersion = versions.get("minecraft");
+			if (loader != null && mcVersion != null) {
+				minecraftVersions = loader.getMinecraftVersionsAsync(false);
+				loaderVersions = loader.getLoaderVersionsAsync(mcVersion, false);
+				log(minecraftVersions, loader.getLoaderName() + " Minecraft versions", start);
+				log(loaderVersions, loader.getLoaderName() + " versions", start);
+			} else {
+				minecraftVersions = null;
+				loaderVersions = null;
 			}
+		}
+
+		private static void log(CompletableFuture<?> future, String what, long start) {
+			future.whenComplete((result, error) -> {
+				if (future.isCancelled()) return; // Another pack was loaded
+				Debug.log("Bootstrap: %s %s %d ms after pack.toml was parsed",
+					what, error == null ? "ready" : "failed (" + error + ")", (System.nanoTime() - start) / 1_000_000);
+			});
+		}
+
+		public Data getData() {
+			return data;
+		}
 
-			var toml = new Toml().read(fileStream);
-			return toml.to(Data.class);
+		/**
+		 * Stops waiting for the lists, once another pack replaced this one; the shared fetches themselves carry on, as
+		 * the next pack likely wants the same loader's lists
+		 */
+		void cancel() {
+			if (minecraftVersions != null) minecraftVersions.cancel(true);
+			if (loaderVersions != null) loaderVersions.cancel(true);
+		}
+
+		/**
+		 * @return The metadata getter for the pack's loader, or null if it doesn't declare one we know
+		 */
+		public LoaderMetadataGetter getLoader() {
+			return loader;
+		}
+
+		/**
+		 * @return The loader's Minecraft versions, or null if the pack has no known loader or Minecraft version
+		 */
+		public CompletableFuture<List<String>> getMinecraftVersions() {
+			return minecraftVersions;
+		}
+
+		/**
+		 * @return The loader versions for the pack's Minecraft version, or null if the pack has no known loader or Minecraft version
+		 */
+		public CompletableFuture<List<String>> getLoaderVersions() {
+			return loaderVersions;
 		}
 	}
 
@@ -124,8 +248,21 @@ public abstract class PackMetadataRetriever {
 
 	public static class IndexFileLoc {
 		String file;
+		@SerializedName("hash-format")
 		String hashFormat;
 		String hash;
+
+		public String getFile() {
+			return file;
+		}
+
+		public String getHashFormat() {
+			return hashFormat;
+		}
+
+		public String getHash() {
+			return hash;
+		}
 	}
 
 	public enum Format {
@@ -1,15 +1,14 @@
 package link.infra.packwiz.vanillainstaller.meta;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import link.infra.packwiz.vanillainstaller.jfr.ParseEvent;
 
-import java.io.IOException;
 import java.io.InputStreamReader;
-import java.lang.reflect.Type;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class QuiltMetadata implements LoaderMetadataGetter {
 	public static String API_URL = "https://meta.quiltmc.org";
@@ -25,111 +24,52 @@ public class QuiltMetadata implements LoaderMetadataGetter {
 		}
 	}
 
-	private final Gson gson = new Gson();
-
 	public QuiltMetadata() {}
 
 	public String getLoaderName() {
-		return "fabric";
+		return "quilt";
 	}
 
 	// TODO: call fabric installer code
-	// TODO: could run off-thread with a swingworker?
-
-	// Using Fabric's API for this ensures we don't get versions unsupported by Fabric
-	private static class GameVersion {
-		private String version;
-		private boolean stable;
-		public String getVersion() {
-			return version;
-		}
-		public void setVersion(String version) {
-			this.version = version;
-		}
-		public boolean isStable() {
-			return stable;
-		}
-		public void setStable(boolean stable) {
-			this.stable = stable;
-		}
-	}
 
-	private List<GameVersion> gameVersions = null;
+	// Quilt's meta lists the game versions Quilt supports, so nothing here needs filtering
+	private final CachedCatalog gameVersions = new CachedCatalog(GAME_API, "quilt-game",
+		in -> VersionCatalog.builder().addGroup(VersionCatalog.UNGROUPED,
+			ParseEvent.record("quilt-game", () -> VersionList.read(new InputStreamReader(in, StandardCharsets.UTF_8)), VersionList::size)));
 
 	@Override
-	public List<String> getMinecraftVersions(boolean stableOnly) {
-		if (gameVersions == null)
-			try {
-				Type listType = new TypeToken<ArrayList<GameVersion>>(){}.getType();
-				gameVersions = gson.fromJson(new InputStreamReader(GAME_API.openStream()), listType);
-			} catch (IOException e) {
-				throw new RuntimeException(e);
-			}
-		return gameVersions.stream()
-				.filter(v -> v.isStable() || !stableOnly)
-				.map(GameVersion::getVersion)
-				.toList();
+	public CompletableFuture<List<String>> getMinecraftVersionsAsync(boolean stableOnly) {
+		return gameVersions.get().thenApply(catalog -> catalog.get(stableOnly));
 	}
 
-	private static class LoaderVersion {
-		private String version;
-		private String separator;
-		private int build;
-		private String maven;
-		private String gameVersion;
-		public String getVersion() {
-			return version;
-		}
-		public void setVersion(String version) {
-			this.version = version;
-		}
-
-		public String getSeparator() {
-			return separator;
-		}
+	private final CachedCatalog loaderVersions = new CachedCatalog(LOADER_API, "quilt-loader",
+		in -> {
+			var grouped = ParseEvent.record("quilt-loader", () -> VersionList.readGrouped(new InputStreamReader(in, StandardCharsets.UTF_8)), VersionList::totalSize);
+			// There's no stable flag in quilt, so go by the versions themselves
+			var versions = new LinkedHashMap<String, List<String>>();
+			grouped.forEach((mcVersion, list) -> versions.put(mcVersion, list.get(false)));
+			return VersionCatalog.builder().sortNewestFirst().addKeyedGroups(versions);
+		});
 
-		public void setSeparator(String separator) {
-			this.separator = separator;
-		}
-
-		public int getBuild() {
-			return build;
-		}
-
-		public void setBuild(int build) {
-			this.build = build;
-		}
-
-		public String getMaven() {
-			return maven;
-		}
-
-		public void setMaven(String maven) {
-			this.maven = maven;
-		}
+	@Override
+	public CompletableFuture<List<String>> getLoaderVersionsAsync(String mcVersion, boolean stableOnly) {
+		return loaderVersions.get().thenApply(catalog -> catalog.get(mcVersion, stableOnly));
+	}
 
-		public String getGameVersion() {
-			return gameVersion;
-		}
+	@Override
+	public CompletableFuture<VersionOrderIndex> getVersionOrderAsync() {
+		return loaderVersions.get().thenApply(VersionCatalog::getOrderIndex);
+	}
 
-		public void setGameVersion(String gameVersion) {
-			this.gameVersion = gameVersion;
-		}
+	@Override
+	public void addChangeListener(Runnable listener) {
+		gameVersions.addChangeListener(listener);
+		loaderVersions.addChangeListener(listener);
 	}
 
-	private List<LoaderVersion> loaderVersions = null;
 	@Override
-	public List<String> getLoaderVersions(String mcVersion, boolean stableOnly) { // There's no stable in quilt
-		if (loaderVersions == null)
-			try {
-				Type listType = new TypeToken<ArrayList<LoaderVersion>>(){}.getType();
-				loaderVersions = gson.fromJson(new InputStreamReader(LOADER_API.openStream()), listType);
-			} catch (IOException e) {
-				throw new RuntimeException(e);
-			}
-		return loaderVersions.stream()
-				.filter(v -> v.getGameVersion().equals(mcVersion))
-				.map(LoaderVersion::getVersion)
-				.toList();
+	public void removeChangeListener(Runnable listener) {
+		gameVersions.removeChangeListener(listener);
+		loaderVersions.removeChangeListener(listener);
 	}
 }
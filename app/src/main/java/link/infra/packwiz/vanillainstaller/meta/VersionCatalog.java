@@ -0,0 +1,381 @@
+package link.infra.packwiz.vanillainstaller.meta;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Compact binary version catalog: version lists grouped by a key (the game version, or {@link #UNGROUPED}), stored as
+ * offsets into a deduplicated string table so it can be memory-mapped and read without parsing anything.
+ * Each group's versions, and its stable versions, are contiguous ranges of string indexes, so a query is a binary
+ * search over the sorted group keys and the returned lists are views into the buffer; strings are only decoded (once)
+ * when they're actually read.
+ * <p>
+ * Layout (big endian): a header with the magic, format version, when the source was fetched and its SHA-256, then the
+ * counts, string offsets, groups (key, all start/end, stable start/end) in source (or sorted) order, group indexes sorted by key,
+ * the version string indexes, the stable version string indexes, and the UTF-8 string data.
+ */
+public final class VersionCatalog {
+	public static final String UNGROUPED = "";
+
+	private static final int MAGIC = 0x50575643; // PWVC
+	private static final int FORMAT_VERSION = 2;
+	private static final int HASH_LENGTH = 64; // Hex SHA-256
+	private static final int HEADER_SIZE = 4 + 4 + 8 + HASH_LENGTH + 4 * 4;
+	private static final int GROUP_INTS = 5;
+
+	private final ByteBuffer buffer;
+	private final long sourceTime;
+	private final String sourceHash;
+	private final int stringCount;
+	private final int groupCount;
+	private final int stringOffsets;
+	private final int groups;
+	private final int sortedGroups;
+	private final int entries;
+	private final int stableEntries;
+	private final int stringData;
+
+	// Decoded lazily; racing threads at worst decode the same string twice
+	private final String[] strings;
+	private final List<List<String>> allViews;
+	private final List<List<String>> stableViews;
+	private List<String> groupKeys = null;
+	private volatile VersionOrderIndex orderIndex = null;
+
+	private VersionCatalog(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+			throw new IOException("Not a version catalog, or an unsupported version of one");
+		}
+		sourceTime = buffer.getLong(8);
+		var hash = new byte[HASH_LENGTH];
+		buffer.get(16, hash);
+		sourceHash = new String(hash, StandardCharsets.US_ASCII);
+
+		int counts = 16 + HASH_LENGTH;
+		stringCount = buffer.getInt(counts);
+		groupCount = buffer.getInt(counts + 4);
+		int entryCount = buffer.getInt(counts + 8);
+		int stableCount = buffer.getInt(counts + 12);
+
+		if (stringCount < 0 || groupCount < 0 || entryCount < 0 || stableCount < 0) {
+			throw new IOException("Corrupt version catalog");
+		}
+		// In longs, so corrupt counts can't overflow into something that looks valid
+		long tableEnd = HEADER_SIZE + 4L * (stringCount + 1) + 4L * GROUP_INTS * groupCount + 4L * groupCount
+			+ 4L * entryCount + 4L * stableCount;
+		if (tableEnd > buffer.limit()) throw new IOException("Truncated version catalog");
+
+		stringOffsets = HEADER_SIZE;
+		groups = stringOffsets + 4 * (stringCount + 1);
+		sortedGroups = groups + 4 * GROUP_INTS * groupCount;
+		entries = sortedGroups + 4 * groupCount;
+		stableEntries = entries + 4 * entryCount;
+		stringData = stableEntries + 4 * stableCount;
+		int dataSize = buffer.getInt(stringOffsets + 4 * stringCount);
+		if (dataSize < 0 || (long) stringData + dataSize > buffer.limit()) {
+			throw new IOException("Truncated version catalog");
+		}
+
+		strings = new String[stringCount];
+		allViews = new ArrayList<>(Collections.nCopies(groupCount, null));
+		stableViews = new ArrayList<>(Collections.nCopies(groupCount, null));
+	}
+
+	/**
+	 * Reads a catalog from a buffer, which isn't copied
+	 */
+	public static VersionCatalog of(ByteBuffer buffer) throws IOException {
+		return new VersionCatalog(buffer);
+	}
+
+	/**
+	 * Memory-maps a catalog file; the file shouldn't be changed while it's in use
+	 */
+	public static VersionCatalog map(Path file) throws IOException {
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new VersionCatalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * @return When the source of this catalog was fetched, in epoch millis
+	 */
+	public long getSourceTime() {
+		return sourceTime;
+	}
+
+	/**
+	 * @return The SHA-256 of the source this catalog was built from
+	 */
+	public String getSourceHash() {
+		return sourceHash;
+	}
+
+	/**
+	 * @return The versions of a group, in source order; empty if there's no such group
+	 */
+	public List<String> get(String group, boolean stableOnly) {
+		int index = findGroup(group);
+		if (index < 0) return List.of();
+		var views = stableOnly ? stableViews : allViews;
+		var view = views.get(index);
+		if (view == null) {
+			int base = groups + 4 * GROUP_INTS * index;
+			int start = buffer.getInt(base + (stableOnly ? 12 : 4));
+			int end = buffer.getInt(base + (stableOnly ? 16 : 8));
+			view = new StringView(stableOnly ? stableEntries : entries, start, end - start);
+			views.set(index, view);
+		}
+		return view;
+	}
+
+	/**
+	 * @return The versions of an ungrouped catalog
+	 */
+	public List<String> get(boolean stableOnly) {
+		return get(UNGROUPED, stableOnly);
+	}
+
+	/**
+	 * @return The group keys, in source order
+	 */
+	public List<String> getGroups() {
+		if (groupKeys == null) {
+			var keys = new String[groupCount];
+			for (int i = 0; i < groupCount; i++) {
+				keys[i] = string(buffer.getInt(groups + 4 * GROUP_INTS * i));
+			}
+			groupKeys = List.of(keys);
+		}
+		return groupKeys;
+	}
+
+	/**
+	 * @return The groups as versions in order, built the first time it's needed; only meaningful for a catalog grouped
+	 * by game version and built with {@link Builder#sortNewestFirst}
+	 */
+	public VersionOrderIndex getOrderIndex() {
+		var index = orderIndex;
+		if (index == null) {
+			synchronized (this) {
+				index = orderIndex;
+				if (index == null) {
+					index = new VersionOrderIndex(this);
+					orderIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @return The number of versions in every group
+	 */
+	public int size() {
+		return (stableEntries - entries) / 4;
+	}
+
+	private int findGroup(String key) {
+		int low = 0, high = groupCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int group = buffer.getInt(sortedGroups + 4 * mid);
+			int cmp = compareString(buffer.getInt(groups + 4 * GROUP_INTS * group), key);
+			if (cmp < 0) low = mid + 1;
+			else if (cmp > 0) high = mid - 1;
+			else return group;
+		}
+		return -1;
+	}
+
+	// Unsigned byte order, same as the builder sorts by; the key is encoded as UTF-8 while comparing rather than up front
+	private int compareString(int index, String key) {
+		int position = stringData + buffer.getInt(stringOffsets + 4 * index);
+		int end = stringData + buffer.getInt(stringOffsets + 4 * (index + 1));
+		for (int i = 0; i < key.length(); ) {
+			int codePoint = key.codePointAt(i);
+			i += Character.charCount(codePoint);
+			if (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) codePoint = '?'; // Unpaired, as getBytes does
+			int length = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+			for (int b = 0; b < length; b++) {
+				int shift = 6 * (length - 1 - b);
+				int expected = b > 0 ? 0x80 | (codePoint >> shift) & 0x3F
+					: length == 1 ? codePoint : (0xF00 >> length) & 0xFF | codePoint >> shift;
+				if (position == end) return -1;
+				int cmp = Integer.compare(buffer.get(position++) & 0xFF, expected);
+				if (cmp != 0) return cmp;
+			}
+		}
+		return position == end ? 0 : 1;
+	}
+
+	private String string(int index) {
+		var string = strings[index];
+		if (string == null) {
+			int start = stringData + buffer.getInt(stringOffsets + 4 * index);
+			int end = stringData + buffer.getInt(stringOffsets + 4 * (index + 1));
+			var bytes = new byte[end - start];
+			buffer.get(start, bytes);
+			string = new String(bytes, StandardCharsets.UTF_8);
+			strings[index] = string;
+		}
+		return string;
+	}
+
+	private final class StringView extends AbstractList<String> implements RandomAccess {
+		private final int region;
+		private final int start;
+		private final int size;
+
+		StringView(int region, int start, int size) {
+			this.region = region;
+			this.start = start;
+			this.size = size;
+		}
+
+		@Override
+		public String get(int index) {
+			if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+			return string(buffer.getInt(region + 4 * (start + index)));
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public static final class Builder {
+		private final Map<String, Integer> stringIndexes = new HashMap<>();
+		private final List<byte[]> strings = new ArrayList<>();
+		private final Map<String, Group> groups = new LinkedHashMap<>();
+		private boolean sortNewestFirst = false;
+
+		private Builder() {}
+
+		private record Group(List<String> all, List<String> stable) {}
+
+		/**
+		 * Adds a group; every stable version must also be in the full list
+		 */
+		public Builder addGroup(String key, List<String> all, List<String> stable) {
+			groups.put(key, new Group(all, stable));
+			return this;
+		}
+
+		public Builder addGroup(String key, VersionList versions) {
+			return addGroup(key, versions.get(false), versions.get(true));
+		}
+
+		public Builder addGroups(Map<String, VersionList> grouped) {
+			grouped.forEach(this::addGroup);
+			return this;
+		}
+
+		/**
+		 * Adds groups whose source doesn't say which versions are stable, going by their {@link VersionKey} instead
+		 */
+		public Builder addKeyedGroups(Map<String, List<String>> grouped) {
+			grouped.forEach((key, versions) -> {
+				var stable = new ArrayList<String>();
+				for (var version : versions) {
+					if (VersionKey.parse(version).isStable()) stable.add(version);
+				}
+				addGroup(key, versions, stable);
+			});
+			return this;
+		}
+
+		/**
+		 * Orders the groups, and the versions in each, newest first by {@link VersionKey} rather than in source order
+		 */
+		public Builder sortNewestFirst() {
+			sortNewestFirst = true;
+			return this;
+		}
+
+		private int intern(String string) {
+			return stringIndexes.computeIfAbsent(string, s -> {
+				strings.add(s.getBytes(StandardCharsets.UTF_8));
+				return strings.size() - 1;
+			});
+		}
+
+		/**
+		 * @param sourceTime When the source was fetched, in epoch millis
+		 * @param sourceHash The hex SHA-256 of the source
+		 */
+		public ByteBuffer encode(long sourceTime, String sourceHash) {
+			if (sourceHash.length() != HASH_LENGTH) throw new IllegalArgumentException("Not a SHA-256: " + sourceHash);
+
+			var groups = this.groups;
+			if (sortNewestFirst) {
+				groups = new LinkedHashMap<>();
+				for (var key : VersionKey.sortNewestFirst(List.copyOf(this.groups.keySet()))) {
+					var group = this.groups.get(key);
+					groups.put(key, new Group(VersionKey.sortNewestFirst(group.all()), VersionKey.sortNewestFirst(group.stable())));
+				}
+			}
+
+			int groupCount = groups.size();
+			var groupTable = new int[groupCount * GROUP_INTS];
+			var all = new ArrayList<Integer>();
+			var stable = new ArrayList<Integer>();
+			int g = 0;
+			for (var group : groups.entrySet()) {
+				groupTable[g * GROUP_INTS] = intern(group.getKey());
+				groupTable[g * GROUP_INTS + 1] = all.size();
+				for (var version : group.getValue().all()) all.add(intern(version));
+				groupTable[g * GROUP_INTS + 2] = all.size();
+				groupTable[g * GROUP_INTS + 3] = stable.size();
+				for (var version : group.getValue().stable()) stable.add(intern(version));
+				groupTable[g * GROUP_INTS + 4] = stable.size();
+				g++;
+			}
+
+			var sorted = new Integer[groupCount];
+			for (int i = 0; i < groupCount; i++) sorted[i] = i;
+			Arrays.sort(sorted, (a, b) -> Arrays.compareUnsigned(strings.get(groupTable[a * GROUP_INTS]), strings.get(groupTable[b * GROUP_INTS])));
+
+			int dataSize = 0;
+			for (var string : strings) dataSize += string.length;
+			int size = HEADER_SIZE + 4 * (strings.size() + 1) + 4 * groupTable.length + 4 * groupCount
+				+ 4 * all.size() + 4 * stable.size() + dataSize;
+
+			var buffer = ByteBuffer.allocate(size);
+			buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(sourceTime);
+			buffer.put(sourceHash.getBytes(StandardCharsets.US_ASCII));
+			buffer.putInt(strings.size()).putInt(groupCount).putInt(all.size()).putInt(stable.size());
+			int offset = 0;
+			for (var string : strings) {
+				buffer.putInt(offset);
+				offset += string.length;
+			}
+			buffer.putInt(offset);
+			for (int value : groupTable) buffer.putInt(value);
+			for (int group : sorted) buffer.putInt(group);
+			for (int index : all) buffer.putInt(index);
+			for (int index : stable) buffer.putInt(index);
+			for (var string : strings) buffer.put(string);
+			return buffer.flip();
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package link.infra.packwiz.vanillainstaller.meta;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A Minecraft or loader version string parsed into something comparable: numbers compare numerically, and
+ * pre-release qualifiers (alpha, beta, pre, rc, or anything unknown) sort below the release they lead up to, so
+ * <code>1.19-pre1 &lt; 1.19 &lt; 1.19.1</code> and <code>1.19.2+build.9 &lt; 1.19.2+build.28</code>.
+ * <p>
+ * Snapshots (<code>22w24a</code>) can't be placed between releases from the string alone, so they sort below every
+ * release, and anything else (old alphas, April fools versions) below those.
+ */
+public final class VersionKey implements Comparable<VersionKey> {
+	private static final Pattern RELEASE = Pattern.compile("\\d+\\.\\d+.*");
+	private static final Pattern SNAPSHOT = Pattern.compile("\\d{2}w\\d{2}.*");
+	private static final Pattern NUMBER = Pattern.compile("\\d+");
+	private static final int OTHER = 0;
+	private static final int SNAPSHOT_BAND = 1;
+	private static final int RELEASE_BAND = 2;
+
+	// Token values: numbers are themselves, everything else is below them and the end of the version
+	private static final long END = -1;
+	private static final long RC = -2;
+	private static final long PRE = -3;
+	private static final long BETA = -4;
+	private static final long ALPHA = -5;
+	private static final long WORD = -6; // Unknown, compared by the word itself
+
+	private final String version;
+	private final int band;
+	private final long[] tokens;
+	private final String[] words;
+
+	private VersionKey(String version, int band, long[] tokens, String[] words) {
+		this.version = version;
+		this.band = band;
+		this.tokens = tokens;
+		this.words = words;
+	}
+
+	public static VersionKey parse(String version) {
+		var lower = version.toLowerCase(Locale.ROOT).trim();
+		int band = RELEASE.matcher(lower).matches() ? RELEASE_BAND : SNAPSHOT.matcher(lower).matches() ? SNAPSHOT_BAND : OTHER;
+
+		var tokens = new ArrayList<Long>();
+		var words = new ArrayList<String>();
+		int i = 0;
+		while (i < lower.length()) {
+			char c = lower.charAt(i);
+			int start = i;
+			if (Character.isDigit(c)) {
+				while (i < lower.length() && Character.isDigit(lower.charAt(i))) i++;
+				var digits = lower.substring(start, i);
+				if (digits.length() <= 18) {
+					tokens.add(Long.parseLong(digits));
+					words.add(null);
+				} else { // Too long to be a version number anyway
+					tokens.add(WORD);
+					words.add(digits);
+				}
+			} else if (Character.isLetter(c)) {
+				while (i < lower.length() && Character.isLetter(lower.charAt(i))) i++;
+				var word = lower.substring(start, i);
+				long token = qualifier(word);
+				if (token != END) {
+					tokens.add(token);
+					words.add(token == WORD ? word : null);
+				}
+			} else {
+				i++; // Separator
+			}
+		}
+
+		var tokenArray = new long[tokens.size()];
+		for (int t = 0; t < tokenArray.length; t++) tokenArray[t] = tokens.get(t);
+		return new VersionKey(version, band, tokenArray, words.toArray(new String[0]));
+	}
+
+	/**
+	 * Parses a prefix for {@link #comparePrefix}; unlike {@link #parse}, a bare number such as <code>1</code> is taken
+	 * as the start of a release line rather than some other kind of version
+	 */
+	public static VersionKey parsePrefix(String prefix) {
+		var key = parse(prefix);
+		if (key.band == OTHER && NUMBER.matcher(prefix.trim()).matches()) {
+			return new VersionKey(key.version, RELEASE_BAND, key.tokens, key.words);
+		}
+		return key;
+	}
+
+	private static long qualifier(String word) {
+		switch (word) {
+			// Noise, e.g. "+build.28" or "Pre-Release 1"
+			case "build": case "release": case "final": case "ga":
+				return END;
+			case "rc":
+				return RC;
+			case "pre": case "preview": case "prerelease":
+				return PRE;
+			case "beta":
+				return BETA;
+			case "alpha":
+				return ALPHA;
+			default:
+				return WORD;
+		}
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return Whether this is a release without any pre-release qualifier
+	 */
+	public boolean isStable() {
+		if (band != RELEASE_BAND) return false;
+		for (long token : tokens) {
+			if (token < 0) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int compareTo(VersionKey other) {
+		return compare(other, Math.max(tokens.length, other.tokens.length));
+	}
+
+	/**
+	 * Compares only as far as the prefix goes, so every version starting with it compares equal; versions sharing a
+	 * prefix are therefore contiguous when sorted
+	 */
+	public int comparePrefix(VersionKey prefix) {
+		return compare(prefix, prefix.tokens.length);
+	}
+
+	public boolean startsWith(VersionKey prefix) {
+		return comparePrefix(prefix) == 0;
+	}
+
+	private int compare(VersionKey other, int length) {
+		if (band != other.band) return Integer.compare(band, other.band);
+		for (int i = 0; i < length; i++) {
+			long a = i < tokens.length ? tokens[i] : END;
+			long b = i < other.tokens.length ? other.tokens[i] : END;
+			if (a != b) return Long.compare(a, b);
+			if (a == WORD) {
+				int cmp = words[i].compareTo(other.words[i]);
+				if (cmp != 0) return cmp;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof VersionKey && compareTo((VersionKey) o) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = band;
+		for (int i = 0; i < tokens.length; i++) {
+			hash = 31 * hash + Long.hashCode(tokens[i]);
+			if (words[i] != null) hash = 31 * hash + words[i].hashCode();
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return version;
+	}
+
+	/**
+	 * Sorts versions newest first, parsing each only once; equal versions keep their order
+	 */
+	public static List<String> sortNewestFirst(List<String> versions) {
+		var keys = new ArrayList<VersionKey>(versions.size());
+		for (var version : versions) keys.add(parse(version));
+		keys.sort(Comparator.reverseOrder());
+		var sorted = new ArrayList<String>(keys.size());
+		for (var key : keys) sorted.add(key.version);
+		return sorted;
+	}
+}
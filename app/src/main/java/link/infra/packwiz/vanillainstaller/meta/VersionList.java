@@ -0,0 +1,122 @@
+package link.infra.packwiz.vanillainstaller.meta;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable list of version strings along with the stable subset, read straight off a meta API response
+ * with a streaming {@link JsonReader} so only the fields we use are ever materialized.
+ */
+public final class VersionList {
+	private final List<String> all;
+	private final List<String> stable;
+
+	private VersionList(List<String> all, List<String> stable) {
+		this.all = List.copyOf(all);
+		// Share the list when everything is stable (e.g. Quilt mappings, which have no stable flag)
+		this.stable = stable.size() == all.size() ? this.all : List.copyOf(stable);
+	}
+
+	public List<String> get(boolean stableOnly) {
+		return stableOnly ? stable : all;
+	}
+
+	public int size() {
+		return all.size();
+	}
+
+	/**
+	 * @return The number of versions in every list of a grouped list
+	 */
+	public static int totalSize(Map<String, VersionList> grouped) {
+		int size = 0;
+		for (var list : grouped.values()) size += list.size();
+		return size;
+	}
+
+	/**
+	 * Reads a <code>[{"version": ..., "stable": ...}, ...]</code> array, e.g. the game version list
+	 */
+	public static VersionList read(Reader in) throws IOException {
+		var all = new ArrayList<String>();
+		var stable = new ArrayList<String>();
+		try (var reader = new JsonReader(in)) {
+			reader.beginArray();
+			while (reader.hasNext()) {
+				var entry = readEntry(reader);
+				if (entry.version == null) continue;
+				// Game versions are shared as keys with the grouped lists
+				var version = entry.version.intern();
+				all.add(version);
+				if (entry.stable) stable.add(version);
+			}
+			reader.endArray();
+		}
+		return new VersionList(all, stable);
+	}
+
+	/**
+	 * Reads an array of entries that each have a <code>gameVersion</code>, grouping them by it as they're parsed
+	 */
+	public static Map<String, VersionList> readGrouped(Reader in) throws IOException {
+		var all = new LinkedHashMap<String, List<String>>();
+		var stable = new LinkedHashMap<String, List<String>>();
+		try (var reader = new JsonReader(in)) {
+			reader.beginArray();
+			while (reader.hasNext()) {
+				var entry = readEntry(reader);
+				if (entry.version == null || entry.gameVersion == null) continue;
+				var gameVersion = entry.gameVersion.intern();
+				all.computeIfAbsent(gameVersion, k -> new ArrayList<>()).add(entry.version);
+				var stableList = stable.computeIfAbsent(gameVersion, k -> new ArrayList<>());
+				if (entry.stable) stableList.add(entry.version);
+			}
+			reader.endArray();
+		}
+
+		var grouped = new LinkedHashMap<String, VersionList>(all.size() * 2);
+		all.forEach((gameVersion, versions) -> grouped.put(gameVersion, new VersionList(versions, stable.get(gameVersion))));
+		return Collections.unmodifiableMap(grouped);
+	}
+
+	private static Entry readEntry(JsonReader reader) throws IOException {
+		var entry = new Entry();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			var name = reader.nextName();
+			if (reader.peek() == JsonToken.NULL) {
+				reader.skipValue();
+				continue;
+			}
+			switch (name) {
+				case "version":
+					entry.version = reader.nextString();
+					break;
+				case "gameVersion":
+					entry.gameVersion = reader.nextString();
+					break;
+				case "stable":
+					entry.stable = reader.nextBoolean();
+					break;
+				default: // maven, separator, build etc. aren't used
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return entry;
+	}
+
+	private static class Entry {
+		String version;
+		String gameVersion;
+		boolean stable = true; // Lists without a stable flag are treated as all stable
+	}
+}
@@ -0,0 +1,157 @@
+package link.infra.packwiz.vanillainstaller.meta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders the Minecraft versions of a catalog grouped by them, with each version parsed into a {@link VersionKey} once,
+ * so "the latest", "everything in 1.19.x" and "the newest supported by every loader" are binary searches rather than
+ * scans. Expects the catalog's loader versions to be sorted newest first, see {@link VersionCatalog.Builder#sortNewestFirst}.
+ */
+public final class VersionOrderIndex {
+	private final VersionCatalog catalog;
+	// Oldest first
+	private final VersionKey[] all;
+	private final VersionKey[] stable;
+	private final List<String> allNewestFirst;
+	private final List<String> stableNewestFirst;
+
+	VersionOrderIndex(VersionCatalog catalog) {
+		this.catalog = catalog;
+		var groups = catalog.getGroups();
+		var keys = new ArrayList<VersionKey>(groups.size());
+		for (var group : groups) {
+			if (!catalog.get(group, false).isEmpty()) keys.add(VersionKey.parse(group));
+		}
+		all = keys.toArray(new VersionKey[0]);
+		Arrays.sort(all);
+		stable = Arrays.stream(all).filter(VersionKey::isStable).toArray(VersionKey[]::new);
+		allNewestFirst = versionsNewestFirst(all, 0, all.length);
+		stableNewestFirst = versionsNewestFirst(stable, 0, stable.length);
+	}
+
+	/**
+	 * @return The Minecraft versions with any loader versions, newest first
+	 */
+	public List<String> getMinecraftVersions(boolean stableOnly) {
+		return stableOnly ? stableNewestFirst : allNewestFirst;
+	}
+
+	/**
+	 * @return The newest Minecraft version with any loader versions, or null if there are none
+	 */
+	public String getLatestMinecraftVersion(boolean stableOnly) {
+		var keys = stableOnly ? stable : all;
+		return keys.length == 0 ? null : keys[keys.length - 1].getVersion();
+	}
+
+	/**
+	 * @param line A version prefix, e.g. <code>1.19</code>, <code>1.19.x</code> or <code>1.x</code>
+	 * @return The Minecraft versions in that line, newest first
+	 */
+	public List<String> getMinecraftVersions(String line, boolean stableOnly) {
+		var keys = stableOnly ? stable : all;
+		var prefix = parseLine(line);
+		return versionsNewestFirst(keys, lowerBound(keys, prefix), upperBound(keys, prefix));
+	}
+
+	/**
+	 * @return The loader versions for every Minecraft version in a line, by Minecraft version, both newest first
+	 */
+	public Map<String, List<String>> getLoaderVersions(String line, boolean stableOnly) {
+		var loaderVersions = new LinkedHashMap<String, List<String>>();
+		for (var mcVersion : getMinecraftVersions(line, false)) {
+			var versions = catalog.get(mcVersion, stableOnly);
+			if (!versions.isEmpty()) loaderVersions.put(mcVersion, versions);
+		}
+		return loaderVersions;
+	}
+
+	/**
+	 * @return The newest loader version for a Minecraft version, or null if there are none
+	 */
+	public String getLatestLoaderVersion(String mcVersion, boolean stableOnly) {
+		var versions = catalog.get(mcVersion, stableOnly);
+		return versions.isEmpty() ? null : versions.get(0);
+	}
+
+	/**
+	 * @return The newest Minecraft version that every index has loader versions for, or null if there's none
+	 */
+	public static String getNewestCommonMinecraftVersion(Collection<VersionOrderIndex> indexes, boolean stableOnly) {
+		if (indexes.isEmpty()) return null;
+		// Start from the oldest of the newest versions, and step down to the newest one every index has at or below
+		// the candidate until they agree; usually that's straight away
+		VersionKey candidate = null;
+		for (var index : indexes) {
+			var keys = stableOnly ? index.stable : index.all;
+			if (keys.length == 0) return null;
+			var newest = keys[keys.length - 1];
+			if (candidate == null || newest.compareTo(candidate) < 0) candidate = newest;
+		}
+		while (true) {
+			VersionKey lowest = candidate;
+			for (var index : indexes) {
+				var keys = stableOnly ? index.stable : index.all;
+				int floor = floor(keys, candidate);
+				if (floor < 0) return null;
+				if (keys[floor].compareTo(lowest) < 0) lowest = keys[floor];
+			}
+			if (lowest.compareTo(candidate) == 0) return candidate.getVersion();
+			candidate = lowest;
+		}
+	}
+
+	private static VersionKey parseLine(String line) {
+		var trimmed = line.trim();
+		if (trimmed.endsWith(".x") || trimmed.endsWith(".*")) trimmed = trimmed.substring(0, trimmed.length() - 2);
+		return VersionKey.parsePrefix(trimmed);
+	}
+
+	// Index of the last key at or below the given one, or -1
+	private static int floor(VersionKey[] keys, VersionKey key) {
+		int low = 0, high = keys.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = keys[mid].compareTo(key);
+			if (cmp < 0) low = mid + 1;
+			else if (cmp > 0) high = mid - 1;
+			else return mid;
+		}
+		return high;
+	}
+
+	// First key starting with the prefix, or sorting after it
+	private static int lowerBound(VersionKey[] keys, VersionKey prefix) {
+		int low = 0, high = keys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (keys[mid].comparePrefix(prefix) < 0) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+
+	// First key sorting after everything starting with the prefix
+	private static int upperBound(VersionKey[] keys, VersionKey prefix) {
+		int low = 0, high = keys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (keys[mid].comparePrefix(prefix) <= 0) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+
+	private static List<String> versionsNewestFirst(VersionKey[] keys, int start, int end) {
+		var versions = new String[end - start];
+		for (int i = 0; i < versions.length; i++) {
+			versions[i] = keys[end - 1 - i].getVersion();
+		}
+		return List.of(versions);
+	}
+}
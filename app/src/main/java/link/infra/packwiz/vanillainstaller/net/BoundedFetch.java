@@ -0,0 +1,149 @@
+package link.infra.packwiz.vanillainstaller.net;
+
+import link.infra.packwiz.vanillainstaller.util.SingleFlight;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches and reads a resource in the background with first byte and total deadlines, over the shared
+ * {@link HttpTransport} so connections are reused with every other request.
+ * Cancelling the returned future (or missing a deadline) aborts the fetch straight away: the request is cancelled,
+ * the stream is closed and the reading thread is interrupted, so abandoned fetches don't hold on to threads or sockets.
+ * Pack deadlines can be changed with <code>-Dpackwiz.pack.firstByteTimeout</code> (which includes connecting) and
+ * <code>-Dpackwiz.pack.totalTimeout</code> (in milliseconds).
+ */
+public class BoundedFetch {
+	private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(r -> {
+		var thread = new Thread(r, "packwiz-fetch-deadline");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static final BoundedFetch PACKS = new BoundedFetch(
+		Duration.ofMillis(Long.getLong("packwiz.pack.firstByteTimeout", 10_000)),
+		Duration.ofMillis(Long.getLong("packwiz.pack.totalTimeout", 30_000))
+	);
+
+	/**
+	 * @return The fetcher for pack files, which the user is waiting on, so deadlines are short
+	 */
+	public static BoundedFetch packs() {
+		return PACKS;
+	}
+
+	public interface BodyReader<T> {
+		T read(InputStream in) throws IOException;
+	}
+
+	public interface ResponseReader<T> {
+		T read(HttpTransport.Response response) throws IOException;
+	}
+
+	private final Duration firstByte;
+	private final Duration total;
+
+	public BoundedFetch(Duration firstByte, Duration total) {
+		this.firstByte = firstByte;
+		this.total = total;
+	}
+
+	public <T> CompletableFuture<T> fetch(URI uri, BodyReader<T> reader) {
+		return fetch(uri, Map::of, response -> {
+			if (response.status() != 200) throw new IOException("Unexpected response " + response.status() + " from " + uri);
+			return reader.read(response.body());
+		});
+	}
+
+	/**
+	 * Fetches with extra request headers and hands over the whole response, e.g. for conditional requests.
+	 * Non-HTTP URIs always give a 200 response without headers.
+	 * @param headers Computed on the fetching thread, so it's fine for them to come from disk
+	 */
+	public <T> CompletableFuture<T> fetch(URI uri, Callable<Map<String, String>> headers, ResponseReader<T> reader) {
+		var fetch = new Fetch<T>(uri);
+		var deadline = DEADLINES.schedule(() -> fetch.abort(new HttpTimeoutException("Timed out after " + total.toMillis() + "ms fetching " + uri)),
+			total.toMillis(), TimeUnit.MILLISECONDS);
+		fetch.result.whenComplete((result, error) -> {
+			deadline.cancel(false);
+			if (error instanceof CancellationException) fetch.abort(error); // Cancelled by the caller
+		});
+		SingleFlight.ioExecutor().execute(() -> fetch.run(headers, reader));
+		return fetch.result;
+	}
+
+	private class Fetch<T> {
+		final URI uri;
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		// Guarded by this, so a pooled thread is never interrupted after it moved on to other work
+		private Thread thread;
+		private InputStream stream;
+
+		Fetch(URI uri) {
+			this.uri = uri;
+		}
+
+		void run(Callable<Map<String, String>> headers, ResponseReader<T> reader) {
+			synchronized (this) {
+				if (result.isDone()) return; // Abandoned before it even started
+				thread = Thread.currentThread();
+			}
+			try {
+				HttpTransport.Response response;
+				if ("http".equals(uri.getScheme()) || "https".equals(uri.getScheme())) {
+					// The request timeout covers everything up to the response headers
+					var request = HttpTransport.getInstance().newRequest(uri).timeout(firstByte);
+					headers.call().forEach(request::setHeader);
+					response = HttpTransport.getInstance().send(request.build());
+				} else {
+					response = new HttpTransport.Response(200, HttpHeaders.of(Map.of(), (name, value) -> true), PackSources.open(uri), uri);
+				}
+				synchronized (this) {
+					stream = response.body();
+				}
+				if (result.isDone()) return;
+				result.complete(reader.read(response));
+			} catch (Throwable e) {
+				// No-op when it was aborted, the abort reason is what gets reported
+				result.completeExceptionally(e);
+			} finally {
+				synchronized (this) {
+					thread = null;
+					Thread.interrupted(); // Don't leak an interrupt into the next task on this thread
+				}
+				closeStream();
+			}
+		}
+
+		void abort(Throwable reason) {
+			result.completeExceptionally(reason);
+			synchronized (this) {
+				if (thread != null) thread.interrupt(); // Unblocks connecting (cancelling the exchange) and reading
+			}
+			closeStream();
+		}
+
+		private void closeStream() {
+			InputStream in;
+			synchronized (this) {
+				in = stream;
+				stream = null;
+			}
+			if (in == null) return;
+			try {
+				in.close();
+			} catch (IOException ignored) {}
+		}
+	}
+}
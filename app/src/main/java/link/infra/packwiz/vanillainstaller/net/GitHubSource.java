@@ -0,0 +1,157 @@
+package link.infra.packwiz.vanillainstaller.net;
+
+import link.infra.packwiz.vanillainstaller.util.PathUtils;
+import link.infra.packwiz.vanillainstaller.util.SingleFlight;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves <code>github://owner/repo/ref/path/to/file</code> URIs to raw file contents.
+ * The ref (a branch, tag or commit; one path segment) is resolved to a commit SHA once per session, so every file of a
+ * pack comes from the same commit. Files under a commit never change, so they're cached on disk forever and shared by
+ * pack.toml, the index and metafiles.
+ * The endpoints can be changed with <code>-Dpackwiz.github.api</code> and <code>-Dpackwiz.github.raw</code>, e.g. to
+ * point at a local server.
+ */
+public class GitHubSource {
+	private static final GitHubSource INSTANCE = new GitHubSource(
+		URI.create(System.getProperty("packwiz.github.api", "https://api.github.com/")),
+		URI.create(System.getProperty("packwiz.github.raw", "https://raw.githubusercontent.com/")),
+		PathUtils.getPackwizUserPath().resolve("cache").resolve("github")
+	);
+
+	public static GitHubSource getInstance() {
+		return INSTANCE;
+	}
+
+	public static final String SCHEME = "github";
+	private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+	private static final Pattern SHA = Pattern.compile("[0-9a-f]{40}");
+
+	public record Location(String owner, String repo, String ref, String path) {}
+
+	private final URI apiBase;
+	private final URI rawBase;
+	private final Path cacheDir;
+	// owner/repo/ref to the commit it pointed at when first used
+	private final Map<String, SingleFlight<String>> commits = new ConcurrentHashMap<>();
+
+	public GitHubSource(URI apiBase, URI rawBase, Path cacheDir) {
+		this.apiBase = withTrailingSlash(apiBase);
+		this.rawBase = withTrailingSlash(rawBase);
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * @return The parts of a github URI, or null if it isn't a valid one
+	 */
+	public static Location parse(URI uri) {
+		if (!SCHEME.equals(uri.getScheme()) || uri.getRawAuthority() == null || uri.getRawPath() == null) return null;
+		var segments = uri.getRawPath().split("/", 4);
+		// "", repo, ref, path
+		if (segments.length < 4 || segments[3].isEmpty()) return null;
+		var owner = uri.getRawAuthority();
+		var repo = segments[1];
+		var ref = segments[2];
+		if (!NAME.matcher(owner).matches() || !NAME.matcher(repo).matches() || !NAME.matcher(ref).matches()) return null;
+		for (var segment : segments[3].split("/")) {
+			if (!isValidSegment(segment)) return null;
+		}
+		return new Location(owner, repo, ref, segments[3]);
+	}
+
+	// Checked decoded, as servers decode them too; %2e%2e is just as much a parent directory as ..
+	private static boolean isValidSegment(String rawSegment) {
+		String segment;
+		try {
+			segment = URLDecoder.decode(rawSegment.replace("+", "%2B"), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) { // Malformed escape
+			return false;
+		}
+		return !segment.isEmpty() && !segment.equals(".") && !segment.equals("..")
+			&& segment.indexOf('/') < 0 && segment.indexOf('\\') < 0 && segment.indexOf('\0') < 0;
+	}
+
+	public static boolean isValid(String url) {
+		try {
+			return parse(new URI(url)) != null;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	public InputStream open(URI uri) throws IOException {
+		var location = parse(uri);
+		if (location == null) throw new IOException("Invalid GitHub URL: " + uri);
+		var sha = resolveCommit(location);
+
+		// Raw path kept encoded; the cache path is made of already validated segments
+		var cached = cacheDir.resolve(location.owner().toLowerCase(Locale.ROOT)).resolve(location.repo().toLowerCase(Locale.ROOT)).resolve(sha);
+		for (var segment : location.path().split("/")) {
+			cached = cached.resolve(segment);
+		}
+		if (Files.isRegularFile(cached)) return Files.newInputStream(cached);
+
+		var raw = rawBase.resolve(location.owner() + "/" + location.repo() + "/" + sha + "/" + location.path());
+		Files.createDirectories(cached.getParent());
+		var tempFile = Files.createTempFile(cached.getParent(), cached.getFileName().toString(), ".tmp");
+		try {
+			try (var in = HttpTransport.getInstance().open(raw)) {
+				Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+			Files.move(tempFile, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+		return Files.newInputStream(cached);
+	}
+
+	/**
+	 * @return The commit SHA the location's ref points at, resolved once per session
+	 */
+	public String resolveCommit(Location location) throws IOException {
+		if (SHA.matcher(location.ref()).matches()) return location.ref();
+		var key = (location.owner() + "/" + location.repo() + "/" + location.ref()).toLowerCase(Locale.ROOT);
+		var flight = commits.computeIfAbsent(key, k -> new SingleFlight<>(() -> fetchCommit(location)));
+		try {
+			return flight.get().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while resolving " + location.ref() + " of " + location.owner() + "/" + location.repo());
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException io) throw io;
+			throw new IOException("Failed to resolve " + location.ref() + " of " + location.owner() + "/" + location.repo(), e.getCause());
+		}
+	}
+
+	private String fetchCommit(Location location) throws IOException {
+		var uri = apiBase.resolve("repos/" + location.owner() + "/" + location.repo() + "/commits/" + location.ref());
+		// Just the SHA, rather than the whole commit
+		var response = HttpTransport.getInstance().get(uri, Map.of("Accept", "application/vnd.github.sha"));
+		try (var in = response.body()) {
+			if (response.status() != 200) {
+				throw new IOException("Unexpected response " + response.status() + " resolving " + location.ref() + " of " + location.owner() + "/" + location.repo());
+			}
+			var sha = new String(in.readNBytes(256), StandardCharsets.UTF_8).trim().toLowerCase(Locale.ROOT);
+			if (!SHA.matcher(sha).matches()) throw new IOException("Invalid commit SHA from " + uri);
+			return sha;
+		}
+	}
+
+	private static URI withTrailingSlash(URI uri) {
+		return uri.toString().endsWith("/") ? uri : URI.create(uri + "/");
+	}
+}
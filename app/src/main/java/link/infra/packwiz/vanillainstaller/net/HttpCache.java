@@ -0,0 +1,246 @@
+package link.infra.packwiz.vanillainstaller.net;
+
+import com.google.gson.Gson;
+import link.infra.packwiz.vanillainstaller.util.Debug;
+import link.infra.packwiz.vanillainstaller.util.PathUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * On-disk HTTP response cache, stores bodies along with their ETag/Last-Modified validators
+ * so later requests can be made conditional and answered from disk on a 304.
+ * Every download goes to a new body file named in the entry, rather than replacing the old one, as the old one may
+ * still be being read (which Windows doesn't allow replacing or deleting); old bodies are deleted once they can be.
+ */
+public class HttpCache {
+	private static final HttpCache INSTANCE = new HttpCache(PathUtils.getPackwizUserPath().resolve("cache").resolve("http"));
+
+	public static HttpCache getInstance() {
+		return INSTANCE;
+	}
+
+	private static final int ENTRY_MOVE_ATTEMPTS = 5;
+
+	private final Gson gson = new Gson();
+	private final Path cacheDir;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	// Entries stored before this point are re-downloaded without validators
+	private volatile long refreshAfter = 0;
+
+	public HttpCache(Path cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	public InputStream open(URL url) throws IOException {
+		return open(url, Map.of());
+	}
+
+	/**
+	 * Opens the body of the given URL, revalidating the cached copy if there is one.
+	 * The returned stream always reads from the cache file on disk.
+	 */
+	public InputStream open(URL url, Map<String, String> requestProperties) throws IOException {
+		var key = keyFor(url);
+		var metaFile = cacheDir.resolve(key + ".json");
+
+		var entry = readEntry(metaFile);
+		var bodyFile = entry == null ? null : bodyFile(key, entry);
+		if (entry != null && (entry.storedAt < refreshAfter || !Files.exists(bodyFile))) {
+			entry = null;
+		}
+
+		var headers = new HashMap<>(requestProperties);
+		if (entry != null) {
+			if (entry.etag != null) headers.put("If-None-Match", entry.etag);
+			if (entry.lastModified != null) headers.put("If-Modified-Since", entry.lastModified);
+		}
+
+		HttpTransport.Response response;
+		try {
+			response = HttpTransport.getInstance().get(toUri(url), headers);
+		} catch (InterruptedIOException e) {
+			throw e;
+		} catch (IOException e) {
+			// Offline; serve the stale copy if we have one
+			if (entry != null) {
+				count(hits, "stale hit (offline)", url);
+				return Files.newInputStream(bodyFile);
+			}
+			throw e;
+		}
+
+		if (response.status() == 304 && entry != null) {
+			response.body().close();
+			count(hits, "hit", url);
+			return Files.newInputStream(bodyFile);
+		}
+		if (response.status() != 200) {
+			response.body().close();
+			throw new IOException("Unexpected response " + response.status() + " from " + url);
+		}
+
+		count(misses, "miss", url);
+		Files.createDirectories(cacheDir);
+		var newBody = Files.createTempFile(cacheDir, key + "-", ".body");
+		InputStream body = null;
+		try {
+			try (var in = response.body()) {
+				Files.copy(in, newBody, StandardCopyOption.REPLACE_EXISTING);
+			}
+			// Opened before the entry points at it, so cleaning up after a concurrent download can't pull it away
+			body = Files.newInputStream(newBody);
+
+			var newEntry = new Entry();
+			newEntry.url = url.toString();
+			newEntry.body = newBody.getFileName().toString();
+			newEntry.etag = response.header("ETag");
+			newEntry.lastModified = response.header("Last-Modified");
+			newEntry.storedAt = System.currentTimeMillis();
+			writeEntry(metaFile, newEntry);
+		} catch (IOException | RuntimeException e) {
+			if (body != null) body.close();
+			Files.deleteIfExists(newBody);
+			throw e;
+		}
+
+		deleteOldBodies(key, newBody);
+		return body;
+	}
+
+	private Path bodyFile(String key, Entry entry) {
+		// Entries from before bodies were versioned
+		return cacheDir.resolve(entry.body != null ? entry.body : key + ".body");
+	}
+
+	private void deleteOldBodies(String key, Path current) {
+		try (var bodies = Files.newDirectoryStream(cacheDir, key + "*.body")) {
+			for (var body : bodies) {
+				if (body.equals(current)) continue;
+				try {
+					Files.deleteIfExists(body);
+				} catch (IOException e) { // Still open (on Windows); deleted after a later download instead
+					Debug.log("Couldn't delete the old cached body %s yet: %s", body, e);
+				}
+			}
+		} catch (IOException e) {
+			Debug.log("Couldn't clean up old cached bodies of %s: %s", key, e);
+		}
+	}
+
+	/**
+	 * A cached body on disk, and when it was stored
+	 */
+	public record CachedBody(Path file, long storedAt) {}
+
+	/**
+	 * @return The cached body of a URL without any network access, however old it is, or null if it isn't cached
+	 */
+	public CachedBody peek(URL url) {
+		var key = keyFor(url);
+		var entry = readEntry(cacheDir.resolve(key + ".json"));
+		if (entry == null) return null;
+		var bodyFile = bodyFile(key, entry);
+		if (!Files.exists(bodyFile)) return null;
+		return new CachedBody(bodyFile, entry.storedAt);
+	}
+
+	/**
+	 * Makes the next request for every currently cached URL skip revalidation and download the body again
+	 */
+	public void forceRefresh() {
+		refreshAfter = System.currentTimeMillis() + 1;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	// With the running totals, so a debug log shows whether a warm start was served from disk
+	private void count(LongAdder counter, String what, URL url) {
+		counter.increment();
+		Debug.log("HTTP cache %s for %s (%d hits, %d misses so far)", what, url, hits.sum(), misses.sum());
+	}
+
+	private Entry readEntry(Path metaFile) {
+		if (!Files.exists(metaFile)) return null;
+		try (Reader reader = Files.newBufferedReader(metaFile, StandardCharsets.UTF_8)) {
+			return gson.fromJson(reader, Entry.class);
+		} catch (Exception e) { // Corrupt entries are just refetched
+			return null;
+		}
+	}
+
+	private void writeEntry(Path metaFile, Entry entry) throws IOException {
+		var tempFile = Files.createTempFile(cacheDir, metaFile.getFileName().toString(), ".tmp");
+		try {
+			try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+				gson.toJson(entry, writer);
+			}
+			// Entries are only open for as long as they take to read, so on Windows it's worth waiting out a reader
+			for (int attempt = 1; ; attempt++) {
+				try {
+					Files.move(tempFile, metaFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					break;
+				} catch (AccessDeniedException e) {
+					if (attempt == ENTRY_MOVE_ATTEMPTS) throw e;
+					try {
+						Thread.sleep(10L * attempt);
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while writing " + metaFile);
+					}
+				}
+			}
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private static URI toUri(URL url) throws IOException {
+		try {
+			return url.toURI();
+		} catch (URISyntaxException e) {
+			throw new IOException("Invalid URL " + url, e);
+		}
+	}
+
+	private static String keyFor(URL url) {
+		try {
+			var digest = MessageDigest.getInstance("SHA-1");
+			return HexFormat.of().formatHex(digest.digest(url.toString().getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) { // Every JVM has SHA-1
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static class Entry {
+		String url;
+		String body;
+		String etag;
+		String lastModified;
+		long storedAt;
+	}
+}
@@ -0,0 +1,205 @@
+package link.infra.packwiz.vanillainstaller.net;
+
+import link.infra.packwiz.vanillainstaller.jfr.FetchEvent;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Shared HTTP transport used for every network request; one pooled {@link HttpClient} with HTTP/2,
+ * gzip/deflate negotiation and timeouts.
+ * Timeouts can be changed with <code>-Dpackwiz.http.connectTimeout</code>, <code>-Dpackwiz.http.requestTimeout</code> (up to the
+ * response headers) and <code>-Dpackwiz.http.idleTimeout</code> (between bytes of the body), in milliseconds.
+ */
+public class HttpTransport {
+	public static final String USER_AGENT = "packwiz-vanilla-installer/" + getVersion();
+
+	private static final HttpTransport INSTANCE = new HttpTransport(
+		Duration.ofMillis(Long.getLong("packwiz.http.connectTimeout", 10_000)),
+		Duration.ofMillis(Long.getLong("packwiz.http.requestTimeout", 30_000)),
+		Duration.ofMillis(Long.getLong("packwiz.http.idleTimeout", 30_000))
+	);
+
+	public static HttpTransport getInstance() {
+		return INSTANCE;
+	}
+
+	private final HttpClient client;
+	private final Duration requestTimeout;
+	private final Duration idleTimeout;
+
+	public HttpTransport(Duration connectTimeout, Duration requestTimeout, Duration idleTimeout) {
+		this.client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_2)
+			.followRedirects(HttpClient.Redirect.NORMAL)
+			.connectTimeout(connectTimeout)
+			.build();
+		this.requestTimeout = requestTimeout;
+		this.idleTimeout = idleTimeout;
+	}
+
+	public HttpClient getClient() {
+		return client;
+	}
+
+	/**
+	 * @return A GET request builder with the default headers and timeout set
+	 */
+	public HttpRequest.Builder newRequest(URI uri) {
+		return HttpRequest.newBuilder(uri)
+			.timeout(requestTimeout)
+			.header("User-Agent", USER_AGENT)
+			.header("Accept-Encoding", "gzip, deflate");
+	}
+
+	/**
+	 * Sends a request; the body of the response is transparently decompressed
+	 */
+	public Response send(HttpRequest request) throws IOException {
+		var event = new FetchEvent();
+		event.begin();
+		long start = System.nanoTime();
+		HttpResponse<Flow.Publisher<List<ByteBuffer>>> response;
+		try {
+			response = client.send(request, HttpResponse.BodyHandlers.ofPublisher());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failed(event, request, e);
+			throw new InterruptedIOException("Interrupted while requesting " + request.uri());
+		} catch (IOException | RuntimeException e) {
+			failed(event, request, e);
+			throw e;
+		}
+		var body = decode(response, new IdleTimeoutInputStream(response.body(), idleTimeout, request.uri()));
+		if (event.isEnabled()) {
+			event.url = request.uri().toString();
+			event.status = response.statusCode();
+			event.contentEncoding = response.headers().firstValue("Content-Encoding").orElse(null);
+			event.timeToHeaders = System.nanoTime() - start;
+			body = new RecordingInputStream(body, event);
+		}
+		return new Response(response.statusCode(), response.headers(), body, response.uri());
+	}
+
+	private static void failed(FetchEvent event, HttpRequest request, Exception e) {
+		if (!event.shouldCommit()) return;
+		event.url = request.uri().toString();
+		event.error = e.toString();
+		event.commit();
+	}
+
+	public Response get(URI uri, Map<String, String> headers) throws IOException {
+		var builder = newRequest(uri);
+		headers.forEach(builder::setHeader);
+		return send(builder.build());
+	}
+
+	/**
+	 * Opens the body of a URI, failing on anything other than a 200
+	 */
+	public InputStream open(URI uri) throws IOException {
+		var response = get(uri, Map.of());
+		if (response.status() != 200) {
+			response.body().close();
+			throw new IOException("Unexpected response " + response.status() + " from " + uri);
+		}
+		return response.body();
+	}
+
+	private static InputStream decode(HttpResponse<?> response, InputStream raw) throws IOException {
+		if (response.statusCode() == 204 || response.statusCode() == 304) return raw; // No body to decode
+		var encoding = response.headers().firstValue("Content-Encoding").orElse("identity").trim();
+		switch (encoding.toLowerCase(Locale.ROOT)) {
+			case "gzip":
+			case "x-gzip":
+				return new GZIPInputStream(raw, 8192);
+			case "deflate":
+				// Servers disagree on whether deflate has the zlib wrapper; peek to check
+				var body = new BufferedInputStream(raw);
+				body.mark(2);
+				int cmf = body.read();
+				int flg = body.read();
+				body.reset();
+				boolean zlib = cmf >= 0 && flg >= 0 && (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+				return new InflaterInputStream(body, new Inflater(!zlib), 8192);
+			default:
+				return raw;
+		}
+	}
+
+	/**
+	 * Counts the bytes of a body, and commits its fetch event once it's been read or closed
+	 */
+	private static class RecordingInputStream extends FilterInputStream {
+		private final FetchEvent event;
+		private boolean committed = false;
+
+		RecordingInputStream(InputStream in, FetchEvent event) {
+			super(in);
+			this.event = event;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b < 0) commit();
+			else event.bytes++;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n < 0) commit();
+			else event.bytes += n;
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			event.bytes += skipped;
+			return skipped;
+		}
+
+		@Override
+		public void close() throws IOException {
+			commit();
+			super.close();
+		}
+
+		private synchronized void commit() {
+			if (committed) return;
+			committed = true;
+			event.commit();
+		}
+	}
+
+	private static String getVersion() {
+		var version = HttpTransport.class.getPackage().getImplementationVersion();
+		return version != null ? version : "dev";
+	}
+
+	public record Response(int status, HttpHeaders headers, InputStream body, URI uri) {
+		public String header(String name) {
+			return headers.firstValue(name).orElse(null);
+		}
+	}
+}
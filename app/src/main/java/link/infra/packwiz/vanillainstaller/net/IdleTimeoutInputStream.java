@@ -0,0 +1,141 @@
+package link.infra.packwiz.vanillainstaller.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a response body publisher as a stream, failing with an {@link HttpTimeoutException} when no data arrives for
+ * the idle timeout; the request timeout only covers getting the headers, so a stalled transfer would otherwise block
+ * forever. Buffers are requested one at a time, so a slow reader doesn't buffer the whole body.
+ */
+class IdleTimeoutInputStream extends InputStream implements Flow.Subscriber<List<ByteBuffer>> {
+	private static final Object END = new Object();
+	private static final Object CLOSED = new Object();
+
+	private final URI uri;
+	private final long idleNanos;
+	private final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+	private Flow.Subscription subscription;
+	private volatile boolean closed = false;
+
+	// Only touched by the reader
+	private Iterator<ByteBuffer> buffers = null;
+	private ByteBuffer current = null;
+	private boolean ended = false;
+
+	IdleTimeoutInputStream(Flow.Publisher<List<ByteBuffer>> body, Duration idleTimeout, URI uri) {
+		this.uri = uri;
+		this.idleNanos = idleTimeout.toNanos();
+		body.subscribe(this);
+	}
+
+	@Override
+	public synchronized void onSubscribe(Flow.Subscription subscription) {
+		this.subscription = subscription;
+		if (closed) subscription.cancel();
+		else subscription.request(1);
+	}
+
+	@Override
+	public void onNext(List<ByteBuffer> item) {
+		received.add(item);
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		received.add(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		received.add(END);
+	}
+
+	/**
+	 * @return Whether there's a buffer with bytes left, false at the end of the body
+	 */
+	private boolean next() throws IOException {
+		while (current == null || !current.hasRemaining()) {
+			if (buffers != null && buffers.hasNext()) {
+				current = buffers.next();
+				continue;
+			}
+			if (ended) return false;
+			if (closed) throw new IOException("Stream closed");
+			if (buffers != null) {
+				buffers = null;
+				requestMore();
+			}
+			Object item;
+			try {
+				item = received.poll(idleNanos, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				throw new InterruptedIOException("Interrupted while reading " + uri);
+			}
+			if (item == null) {
+				close();
+				throw new HttpTimeoutException("No data received for " + TimeUnit.NANOSECONDS.toMillis(idleNanos) + "ms from " + uri);
+			} else if (item == CLOSED) {
+				throw new IOException("Stream closed");
+			} else if (item == END) {
+				ended = true;
+				return false;
+			} else if (item instanceof Throwable e) {
+				ended = true;
+				throw e instanceof IOException io ? io : new IOException("Failed reading " + uri, e);
+			} else {
+				@SuppressWarnings("unchecked")
+				var list = (List<ByteBuffer>) item;
+				buffers = list.iterator();
+			}
+		}
+		return true;
+	}
+
+	private synchronized void requestMore() {
+		if (subscription != null && !closed) subscription.request(1);
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!next()) return -1;
+		return current.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) return 0;
+		if (!next()) return -1;
+		int n = Math.min(len, current.remaining());
+		current.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return current == null ? 0 : current.remaining();
+	}
+
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (closed) return;
+			closed = true;
+			if (subscription != null) subscription.cancel();
+		}
+		received.add(CLOSED); // Wakes up a reader waiting on another thread
+	}
+}
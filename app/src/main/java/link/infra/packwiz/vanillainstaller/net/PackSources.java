@@ -0,0 +1,28 @@
+package link.infra.packwiz.vanillainstaller.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Opens pack files (pack.toml, the index, metafiles and pack-relative files) from any supported URI scheme
+ */
+public class PackSources {
+	private PackSources() {}
+
+	public static InputStream open(URI uri) throws IOException {
+		switch (uri.getScheme()) {
+			case "http":
+			case "https":
+				return HttpTransport.getInstance().open(uri);
+			case "file":
+				return Files.newInputStream(Paths.get(uri));
+			case GitHubSource.SCHEME:
+				return GitHubSource.getInstance().open(uri);
+			default:
+				throw new IOException("Invalid URL scheme supplied: " + uri.getScheme()); // Perhaps a custom exception class?
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package link.infra.packwiz.vanillainstaller.net;
+
+import com.google.gson.Gson;
+import link.infra.packwiz.vanillainstaller.hash.Hasher;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads into a <code>.part</code> file with a small journal next to it (bytes received + validators), so interrupted
+ * transfers pick up where they left off with <code>Range</code>/<code>If-Range</code>, and only start over when the
+ * server copy changed.
+ */
+public class ResumableDownload {
+	private static final Gson GSON = new Gson();
+	private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-\\d+/(?:\\d+|\\*)");
+	private static final int MAX_ATTEMPTS = Integer.getInteger("packwiz.download.attempts", 5);
+	// How often the journal is brought up to date while downloading
+	private static final long JOURNAL_INTERVAL = 1L << 20;
+	private static final long MAP_WINDOW = 256L << 20;
+
+	private ResumableDownload() {}
+
+	/**
+	 * Downloads to <code>target</code>, going through <code>target.part</code>; retries and resumes on failure
+	 * @param hasher Creates the hasher that's fed every byte of the file (including resumed ones), or null
+	 * @return The hash from the hasher, or null if there isn't one
+	 */
+	public static String download(URI source, Path target, Supplier<Hasher> hasher) throws IOException {
+		var partFile = target.resolveSibling(target.getFileName() + ".part");
+		var journalFile = target.resolveSibling(target.getFileName() + ".part.json");
+		Files.createDirectories(target.getParent());
+
+		IOException lastFailure = null;
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			if (attempt > 0) {
+				try {
+					Thread.sleep(Math.min(8000, 500L << attempt));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while retrying " + source);
+				}
+			}
+			try {
+				var hash = attempt(source, partFile, journalFile, hasher);
+				Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				Files.deleteIfExists(journalFile);
+				return hash;
+			} catch (InterruptedIOException e) {
+				throw e;
+			} catch (IOException e) {
+				if (lastFailure != null) e.addSuppressed(lastFailure);
+				lastFailure = e;
+			}
+		}
+		throw lastFailure;
+	}
+
+	private static String attempt(URI source, Path partFile, Path journalFile, Supplier<Hasher> hasherFactory) throws IOException {
+		var journal = readJournal(journalFile);
+		long offset = 0;
+		if (journal != null && source.toString().equals(journal.url) && Files.exists(partFile) && Files.size(partFile) >= journal.received
+			&& (journal.etag != null || journal.lastModified != null)) {
+			offset = journal.received;
+		} else {
+			journal = null;
+		}
+
+		var headers = new HashMap<String, String>();
+		// Ranges need to refer to the raw bytes, not a compressed body (and artifacts are mostly jars anyway)
+		headers.put("Accept-Encoding", "identity");
+		if (offset > 0) {
+			headers.put("Range", "bytes=" + offset + "-");
+			// Only resume if it's still the same file, else the server sends all of it
+			headers.put("If-Range", journal.etag != null ? journal.etag : journal.lastModified);
+		}
+
+		var response = isHttp(source) ? HttpTransport.getInstance().get(source, headers) : null;
+		if (response != null && response.status() == 416 && offset > 0) { // Our part is no good, start over
+			response.body().close();
+			Files.deleteIfExists(journalFile);
+			Files.deleteIfExists(partFile);
+			return attempt(source, partFile, journalFile, hasherFactory);
+		}
+		if (response != null && response.status() != 200 && response.status() != 206) {
+			response.body().close();
+			throw new IOException("Unexpected response " + response.status() + " from " + source);
+		}
+		if (response == null || response.status() != 206 || contentRangeStart(response) != offset) {
+			offset = 0; // Server copy changed, or range not supported
+		}
+
+		var newJournal = new Journal();
+		newJournal.url = source.toString();
+		if (response != null) {
+			newJournal.etag = response.header("ETag");
+			newJournal.lastModified = response.header("Last-Modified");
+			if (offset > 0) {
+				// 206 responses don't always repeat the validators
+				if (newJournal.etag == null) newJournal.etag = journal.etag;
+				if (newJournal.lastModified == null) newJournal.lastModified = journal.lastModified;
+			}
+		}
+
+		var hasher = hasherFactory == null ? null : hasherFactory.get();
+		try (var in = response != null ? response.body() : PackSources.open(source);
+			 var channel = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+			channel.truncate(offset);
+			if (hasher != null && offset > 0) {
+				// Feed the bytes we already have
+				for (long position = 0; position < offset; position += MAP_WINDOW) {
+					hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, offset - position)));
+				}
+			}
+			channel.position(offset);
+
+			var buffer = new byte[64 * 1024];
+			var wrapped = ByteBuffer.wrap(buffer);
+			long received = offset;
+			long lastJournaled = received;
+			try {
+				int read;
+				while ((read = in.read(buffer)) >= 0) {
+					wrapped.limit(read).position(0);
+					while (wrapped.hasRemaining()) channel.write(wrapped);
+					if (hasher != null) {
+						wrapped.position(0);
+						hasher.update(wrapped);
+					}
+					received += read;
+					if (received - lastJournaled >= JOURNAL_INTERVAL) {
+						newJournal.received = received;
+						writeJournal(journalFile, newJournal);
+						lastJournaled = received;
+					}
+				}
+			} finally {
+				// Record how far we got, so the next attempt (or run) resumes from here
+				channel.force(false);
+				newJournal.received = received;
+				writeJournal(journalFile, newJournal);
+			}
+		}
+		return hasher == null ? null : hasher.finish();
+	}
+
+	private static boolean isHttp(URI uri) {
+		return "http".equals(uri.getScheme()) || "https".equals(uri.getScheme());
+	}
+
+	private static long contentRangeStart(HttpTransport.Response response) {
+		var range = response.header("Content-Range");
+		if (range == null) return -1;
+		var matcher = CONTENT_RANGE.matcher(range.trim());
+		return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+	}
+
+	private static Journal readJournal(Path journalFile) {
+		if (!Files.exists(journalFile)) return null;
+		try (Reader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+			return GSON.fromJson(reader, Journal.class);
+		} catch (Exception e) { // A broken journal just means starting over
+			return null;
+		}
+	}
+
+	private static void writeJournal(Path journalFile, Journal journal) throws IOException {
+		var tempFile = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+		try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+			GSON.toJson(journal, writer);
+		}
+		Files.move(tempFile, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static class Journal {
+		String url;
+		String etag;
+		String lastModified;
+		long received;
+	}
+}
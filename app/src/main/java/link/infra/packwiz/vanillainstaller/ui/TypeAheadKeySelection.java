@@ -0,0 +1,64 @@
+package link.infra.packwiz.vanillainstaller.ui;
+
+import javax.swing.*;
+import javax.swing.event.PopupMenuEvent;
+import javax.swing.event.PopupMenuListener;
+
+/**
+ * Type-ahead for combo boxes backed by a {@link VersionComboBoxModel}: typed characters build up a query (reset after a
+ * pause) that selects the best match, and while the popup is open the list is filtered down to the matches
+ */
+public class TypeAheadKeySelection implements JComboBox.KeySelectionManager {
+	private static final long RESET_MILLIS = 1000;
+
+	private final JComboBox<String> comboBox;
+	private final VersionComboBoxModel model;
+	private final StringBuilder query = new StringBuilder();
+	private long lastTyped = 0;
+
+	private TypeAheadKeySelection(JComboBox<String> comboBox, VersionComboBoxModel model) {
+		this.comboBox = comboBox;
+		this.model = model;
+	}
+
+	public static void install(JComboBox<String> comboBox, VersionComboBoxModel model) {
+		var selection = new TypeAheadKeySelection(comboBox, model);
+		comboBox.setKeySelectionManager(selection);
+		comboBox.addPopupMenuListener(new PopupMenuListener() {
+			@Override
+			public void popupMenuWillBecomeVisible(PopupMenuEvent e) {}
+
+			@Override
+			public void popupMenuWillBecomeInvisible(PopupMenuEvent e) {
+				// Keeps the selection, just shows everything again
+				selection.query.setLength(0);
+				model.setFilter("");
+			}
+
+			@Override
+			public void popupMenuCanceled(PopupMenuEvent e) {}
+		});
+	}
+
+	@Override
+	public int selectionForKey(char key, ComboBoxModel<?> ignored) {
+		long now = System.currentTimeMillis();
+		// The filter stays while the popup is open, so the user can keep refining it
+		if (now - lastTyped > RESET_MILLIS && !comboBox.isPopupVisible()) query.setLength(0);
+		lastTyped = now;
+
+		if (key == '\b') {
+			if (!query.isEmpty()) query.setLength(query.length() - 1);
+		} else if (Character.isISOControl(key)) {
+			return -1;
+		} else {
+			query.append(key);
+		}
+
+		if (comboBox.isPopupVisible()) {
+			model.setFilter(query.toString());
+			return model.getSize() > 0 ? 0 : -1;
+		}
+		return query.isEmpty() ? -1 : model.indexOfBestMatch(query.toString());
+	}
+}
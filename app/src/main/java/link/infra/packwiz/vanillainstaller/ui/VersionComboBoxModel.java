@@ -0,0 +1,165 @@
+package link.infra.packwiz.vanillainstaller.ui;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Combo box model for (possibly very long) version lists. A new list is swapped in whole, with a single change event,
+ * rather than item by item; the list isn't copied, so it should be immutable.
+ * It can be filtered by a type-ahead query: prefix matches come first, then substring matches, both in list order.
+ * Prefix matches are found by binary search in an index, built with {@link #index} off the EDT along with the list.
+ */
+@SuppressWarnings("serial")
+public class VersionComboBoxModel extends AbstractListModel<String> implements ComboBoxModel<String> {
+	/**
+	 * A version list along with its search index
+	 */
+	public static final class Versions {
+		public static final Versions EMPTY = index(List.of());
+
+		private final List<String> all;
+		// Lower case versions, and their indexes sorted by them for prefix search
+		private final String[] lower;
+		private final int[] sorted;
+
+		private Versions(List<String> all, String[] lower, int[] sorted) {
+			this.all = all;
+			this.lower = lower;
+			this.sorted = sorted;
+		}
+	}
+
+	/**
+	 * Indexes a list for searching; thousands of versions take a while, so call this off the EDT
+	 */
+	public static Versions index(List<String> versions) {
+		var lower = new String[versions.size()];
+		for (int i = 0; i < lower.length; i++) {
+			lower[i] = versions.get(i).toLowerCase(Locale.ROOT);
+		}
+		var sorted = IntStream.range(0, lower.length).boxed()
+			.sorted(Comparator.comparing(i -> lower[i]))
+			.mapToInt(Integer::intValue)
+			.toArray();
+		return new Versions(versions, lower, sorted);
+	}
+
+	private List<String> all = List.of();
+	private String[] lower = new String[0];
+	private int[] sorted = new int[0];
+
+	private List<String> visible = List.of();
+	private String filter = "";
+	private Object selected = null;
+
+	/**
+	 * Replaces the versions and clears the filter
+	 * @param select The version to select; if it's not in the list, the first one is selected
+	 */
+	public void setVersions(Versions versions, String select) {
+		all = versions.all;
+		lower = versions.lower;
+		sorted = versions.sorted;
+
+		filter = "";
+		visible = all;
+		selected = select != null && all.contains(select) ? select : all.isEmpty() ? null : all.get(0);
+		fireContentsChanged(this, -1, -1);
+	}
+
+	public void clear() {
+		setVersions(Versions.EMPTY, null);
+	}
+
+	public List<String> getVersions() {
+		return all;
+	}
+
+	/**
+	 * Shows only the versions matching the query, prefix matches first; an empty query shows everything
+	 */
+	public void setFilter(String query) {
+		var normalized = query == null ? "" : query.toLowerCase(Locale.ROOT);
+		if (normalized.equals(filter)) return;
+		filter = normalized;
+		visible = normalized.isEmpty() ? all : search(normalized);
+		fireContentsChanged(this, -1, -1);
+	}
+
+	public String getFilter() {
+		return filter;
+	}
+
+	/**
+	 * @return The versions matching the query: those starting with it, then those containing it elsewhere
+	 */
+	public List<String> search(String query) {
+		var normalized = query.toLowerCase(Locale.ROOT);
+		var prefixed = prefixMatches(normalized);
+		var matches = new ArrayList<String>();
+		var isPrefix = new boolean[lower.length];
+		for (int i : prefixed) {
+			isPrefix[i] = true;
+			matches.add(all.get(i));
+		}
+		for (int i = 0; i < lower.length; i++) {
+			if (!isPrefix[i] && lower[i].contains(normalized)) matches.add(all.get(i));
+		}
+		return matches;
+	}
+
+	/**
+	 * @return The index in the visible list of the best match for the query, or -1 if nothing matches
+	 */
+	public int indexOfBestMatch(String query) {
+		var matches = search(query);
+		return matches.isEmpty() ? -1 : visible.indexOf(matches.get(0));
+	}
+
+	private int[] prefixMatches(String prefix) {
+		// First index that sorts at or after the prefix, then every one that starts with it
+		int low = 0, high = sorted.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (lower[sorted[mid]].compareTo(prefix) < 0) low = mid + 1;
+			else high = mid;
+		}
+		int end = low;
+		while (end < sorted.length && lower[sorted[end]].startsWith(prefix)) end++;
+
+		var indexes = new int[end - low];
+		for (int i = low; i < end; i++) {
+			indexes[i - low] = sorted[i];
+		}
+		Arrays.sort(indexes); // Back in list order
+		return indexes;
+	}
+
+	@Override
+	public int getSize() {
+		return visible.size();
+	}
+
+	@Override
+	public String getElementAt(int index) {
+		return visible.get(index);
+	}
+
+	@Override
+	public void setSelectedItem(Object item) {
+		if ((selected != null && !selected.equals(item)) || (selected == null && item != null)) {
+			selected = item;
+			fireContentsChanged(this, -1, -1);
+		}
+	}
+
+	@Override
+	public Object getSelectedItem() {
+		return selected;
+	}
+}
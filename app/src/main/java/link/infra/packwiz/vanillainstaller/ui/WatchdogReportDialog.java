@@ -0,0 +1,51 @@
+package link.infra.packwiz.vanillainstaller.ui;
+
+import link.infra.packwiz.vanillainstaller.util.EdtWatchdog;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+
+/**
+ * Hidden debug panel showing the {@link EdtWatchdog} report, opened with Ctrl+Shift+D when the watchdog is enabled
+ */
+@SuppressWarnings("serial")
+public class WatchdogReportDialog extends JDialog {
+	private final JTextArea reportArea = new JTextArea();
+
+	private WatchdogReportDialog(Frame owner, EdtWatchdog watchdog) {
+		super(owner, "EDT watchdog", false);
+		reportArea.setEditable(false);
+		reportArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+		JButton refreshButton = new JButton("Refresh");
+		refreshButton.addActionListener(e -> reportArea.setText(watchdog.report()));
+		JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+		buttonPanel.add(refreshButton);
+
+		getContentPane().add(new JScrollPane(reportArea), BorderLayout.CENTER);
+		getContentPane().add(buttonPanel, BorderLayout.SOUTH);
+		reportArea.setText(watchdog.report());
+		setSize(900, 500);
+		setLocationRelativeTo(owner);
+	}
+
+	/**
+	 * Binds Ctrl+Shift+D in the frame to the report, if the watchdog is enabled
+	 */
+	public static void install(JFrame frame) {
+		var watchdog = EdtWatchdog.getInstance();
+		if (watchdog == null) return;
+		var rootPane = frame.getRootPane();
+		rootPane.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+			.put(KeyStroke.getKeyStroke(KeyEvent.VK_D, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK), "showWatchdogReport");
+		rootPane.getActionMap().put("showWatchdogReport", new AbstractAction() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				new WatchdogReportDialog(frame, watchdog).setVisible(true);
+			}
+		});
+	}
+}
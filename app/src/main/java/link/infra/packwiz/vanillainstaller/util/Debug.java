@@ -0,0 +1,16 @@
+package link.infra.packwiz.vanillainstaller.util;
+
+/**
+ * Debug output, enabled with <code>-Dpackwiz.debug=true</code>
+ */
+public class Debug {
+	private Debug() {}
+
+	public static final boolean ENABLED = Boolean.getBoolean("packwiz.debug");
+
+	public static void log(String format, Object... args) {
+		if (ENABLED) {
+			System.err.println("[packwiz debug] " + String.format(format, args));
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package link.infra.packwiz.vanillainstaller.util;
+
+import java.awt.*;
+import java.awt.event.InvocationEvent;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long each event takes on the EDT, enabled with <code>-Dpackwiz.edt.watchdog=true</code>.
+ * Keeps a latency histogram per event type, and when an event runs longer than <code>-Dpackwiz.edt.stallMillis</code>
+ * (100 by default) it captures the EDT's stack while it's still stuck, and logs the stall to stderr once it's over.
+ * The report is printed on exit, and can be viewed with Ctrl+Shift+D in the installer window.
+ * <p>
+ * Time spent in nested event loops (e.g. a modal dialog) isn't counted against the event that opened them.
+ */
+public class EdtWatchdog extends EventQueue {
+	public static final boolean ENABLED = Boolean.getBoolean("packwiz.edt.watchdog");
+	private static final long STALL_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("packwiz.edt.stallMillis", 100));
+	private static final int MAX_STALLS = 50;
+	// Upper bounds of the histogram buckets in milliseconds; the last bucket is everything above
+	private static final long[] BUCKETS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024, 2048};
+
+	private static EdtWatchdog instance = null;
+
+	/**
+	 * Replaces the system event queue with a watchdog if it's enabled; call before anything is shown
+	 */
+	public static synchronized void installIfEnabled() {
+		if (!ENABLED || instance != null) return;
+		instance = new EdtWatchdog();
+		Toolkit.getDefaultToolkit().getSystemEventQueue().push(instance);
+		instance.startSampler();
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.print(instance.report()), "packwiz-edt-report"));
+	}
+
+	/**
+	 * @return The installed watchdog, or null if it isn't enabled
+	 */
+	public static synchronized EdtWatchdog getInstance() {
+		return instance;
+	}
+
+	private static class Frame {
+		final String type;
+		final long start;
+		long nested = 0;
+		// Read by the sampler
+		volatile long resumed;
+		volatile StackTraceElement[] stack = null;
+
+		Frame(String type, long start) {
+			this.type = type;
+			this.start = start;
+			this.resumed = start;
+		}
+	}
+
+	private static class Histogram {
+		final long[] counts = new long[BUCKETS.length + 1];
+		long total = 0;
+		long totalNanos = 0;
+		long maxNanos = 0;
+
+		void record(long nanos) {
+			long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+			int bucket = 0;
+			while (bucket < BUCKETS.length && millis >= BUCKETS[bucket]) bucket++;
+			counts[bucket]++;
+			total++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+		}
+	}
+
+	private record Stall(String type, long nanos, StackTraceElement[] stack) {}
+
+	// Only touched on the EDT
+	private final Deque<Frame> frames = new ArrayDeque<>();
+	private volatile Frame active = null;
+	private volatile Thread dispatchThread = null;
+
+	// Guarded by this
+	private final Map<String, Histogram> histograms = new TreeMap<>();
+	private final Deque<Stall> stalls = new ArrayDeque<>();
+
+	private EdtWatchdog() {}
+
+	private void startSampler() {
+		ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+			var thread = new Thread(r, "packwiz-edt-watchdog");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(TimeUnit.NANOSECONDS.toMillis(STALL_NANOS) / 4, 5);
+		sampler.scheduleAtFixedRate(this::sample, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	private void sample() {
+		var frame = active;
+		var thread = dispatchThread;
+		if (frame == null || thread == null || frame.stack != null) return;
+		if (System.nanoTime() - frame.resumed > STALL_NANOS) {
+			frame.stack = thread.getStackTrace();
+		}
+	}
+
+	@Override
+	protected void dispatchEvent(AWTEvent event) {
+		dispatchThread = Thread.currentThread();
+		var parent = frames.peek();
+		var frame = new Frame(typeOf(event), System.nanoTime());
+		frames.push(frame);
+		active = frame;
+		try {
+			super.dispatchEvent(event);
+		} finally {
+			long end = System.nanoTime();
+			frames.pop();
+			long elapsed = end - frame.start;
+			long own = elapsed - frame.nested;
+			if (parent != null) {
+				parent.nested += elapsed;
+				parent.resumed = end;
+			}
+			active = parent;
+			finished(frame, own);
+		}
+	}
+
+	private void finished(Frame frame, long own) {
+		boolean stalled = own > STALL_NANOS;
+		synchronized (this) {
+			histograms.computeIfAbsent(frame.type, t -> new Histogram()).record(own);
+			if (stalled) {
+				if (stalls.size() == MAX_STALLS) stalls.removeFirst();
+				stalls.addLast(new Stall(frame.type, own, frame.stack));
+			}
+		}
+		if (stalled) {
+			var sb = new StringBuilder();
+			appendStall(sb, new Stall(frame.type, own, frame.stack));
+			System.err.print(sb);
+		}
+	}
+
+	private static String typeOf(AWTEvent event) {
+		var params = event.paramString();
+		if (event instanceof InvocationEvent) {
+			// invokeLater and friends: the runnable's class says more than the event does
+			int start = params.indexOf("runnable=");
+			if (start >= 0) {
+				start += "runnable=".length();
+				int end = params.indexOf(',', start);
+				var runnable = end >= 0 ? params.substring(start, end) : params.substring(start);
+				// Drop the identity hash, and the lambda's generated suffix
+				int at = runnable.indexOf('@');
+				if (at >= 0) runnable = runnable.substring(0, at);
+				int lambda = runnable.indexOf("$$Lambda");
+				if (lambda >= 0) runnable = runnable.substring(0, lambda) + " lambda";
+				return "Invocation " + runnable;
+			}
+		}
+		// Anonymous event classes have no simple name
+		var name = event.getClass().getSimpleName().isEmpty() ? event.getClass().getName() : event.getClass().getSimpleName();
+		int comma = params.indexOf(',');
+		return (name + " " + (comma >= 0 ? params.substring(0, comma) : params)).trim();
+	}
+
+	/**
+	 * @return The histograms and recent stalls, as text
+	 */
+	public synchronized String report() {
+		var sb = new StringBuilder();
+		sb.append("[packwiz edt] Event latencies (own time, excluding nested event loops)\n");
+		sb.append(String.format("%-70s %8s %9s %9s  %s%n", "Event type", "Count", "Mean ms", "Max ms", histogramHeader()));
+		// Slowest first
+		var sorted = new ArrayList<>(histograms.entrySet());
+		sorted.sort((a, b) -> Long.compare(b.getValue().maxNanos, a.getValue().maxNanos));
+		for (var entry : sorted) {
+			var h = entry.getValue();
+			sb.append(String.format("%-70s %8d %9.2f %9.2f  %s%n", entry.getKey(), h.total,
+				h.totalNanos / 1e6 / h.total, h.maxNanos / 1e6, histogramCounts(h)));
+		}
+		sb.append("[packwiz edt] ").append(stalls.size()).append(" recent stalls over ")
+			.append(TimeUnit.NANOSECONDS.toMillis(STALL_NANOS)).append(" ms\n");
+		for (var stall : stalls) {
+			appendStall(sb, stall);
+		}
+		return sb.toString();
+	}
+
+	private static String histogramHeader() {
+		List<String> labels = new ArrayList<>();
+		for (long bound : BUCKETS) labels.add("<" + bound);
+		labels.add(">=" + BUCKETS[BUCKETS.length - 1]);
+		return String.join(" ", labels);
+	}
+
+	private static String histogramCounts(Histogram h) {
+		List<String> counts = new ArrayList<>();
+		for (long count : h.counts) counts.add(Long.toString(count));
+		return String.join(" ", counts);
+	}
+
+	private static void appendStall(StringBuilder sb, Stall stall) {
+		sb.append(String.format("[packwiz edt] Stall: %s took %.1f ms%n", stall.type(), stall.nanos() / 1e6));
+		if (stall.stack() == null) {
+			sb.append("\t(finished before its stack could be captured)\n");
+			return;
+		}
+		for (var element : stall.stack()) {
+			sb.append("\tat ").append(element).append('\n');
+		}
+	}
+}
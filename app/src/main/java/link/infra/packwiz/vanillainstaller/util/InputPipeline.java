@@ -0,0 +1,103 @@
+package link.infra.packwiz.vanillainstaller.util;
+
+import java.awt.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Debounces a UI input and runs work for it, latest wins: a newer input cancels the pending timer and any work still
+ * in flight, and results are only delivered to the EDT if nothing newer came in since. Every pipeline shares one
+ * timer thread.
+ * <p>
+ * Inputs are submitted, and work is started and its results delivered, on the EDT. The future the work returns gets
+ * cancelled when it's superseded, so it shouldn't be a shared one (e.g. straight from a {@link SingleFlight}).
+ */
+public final class InputPipeline<T, R> {
+	private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, r -> {
+		var thread = new Thread(r, "packwiz-input-timer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	static {
+		TIMER.setRemoveOnCancelPolicy(true);
+	}
+
+	private final long delayMillis;
+	private final Function<T, ? extends CompletionStage<R>> work;
+	private final BiConsumer<R, Throwable> onResult;
+
+	// Only touched on the EDT
+	private long generation = 0;
+	private ScheduledFuture<?> pending = null;
+	private CompletableFuture<R> inFlight = null;
+
+	/**
+	 * @param delayMillis How long the input has to stay the same before the work starts
+	 * @param work Starts the work for an input, called on the EDT
+	 * @param onResult Receives the result (or failure) of the latest input, called on the EDT
+	 */
+	public InputPipeline(long delayMillis, Function<T, ? extends CompletionStage<R>> work, BiConsumer<R, Throwable> onResult) {
+		this.delayMillis = delayMillis;
+		this.work = work;
+		this.onResult = onResult;
+	}
+
+	/**
+	 * Runs the work once no newer input has come in for the delay
+	 */
+	public void submit(T input) {
+		var gen = supersede();
+		pending = TIMER.schedule(() -> EventQueue.invokeLater(() -> {
+			if (gen == generation) start(gen, input);
+		}), delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Runs the work straight away, e.g. for a paste where there's no point waiting for more input
+	 */
+	public void submitNow(T input) {
+		start(supersede(), input);
+	}
+
+	/**
+	 * Drops the pending input and the work in flight, if any
+	 */
+	public void cancel() {
+		supersede();
+	}
+
+	private long supersede() {
+		assert EventQueue.isDispatchThread();
+		if (pending != null) {
+			pending.cancel(false);
+			pending = null;
+		}
+		if (inFlight != null) {
+			inFlight.cancel(true);
+			inFlight = null;
+		}
+		return ++generation;
+	}
+
+	private void start(long gen, T input) {
+		pending = null;
+		CompletableFuture<R> future;
+		try {
+			future = work.apply(input).toCompletableFuture();
+		} catch (RuntimeException e) {
+			future = CompletableFuture.failedFuture(e);
+		}
+		inFlight = future;
+		future.whenComplete((result, error) -> EventQueue.invokeLater(() -> {
+			if (gen != generation) return; // Superseded (or cancelled) in the meantime
+			inFlight = null;
+			onResult.accept(result, error);
+		}));
+	}
+}
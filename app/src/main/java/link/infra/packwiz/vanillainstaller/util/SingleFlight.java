@@ -0,0 +1,82 @@
+package link.infra.packwiz.vanillainstaller.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lazily computes a value in the background at most once at a time: concurrent callers share the same in-flight future,
+ * successful results are kept, and failures are forgotten so the next caller retries.
+ */
+public class SingleFlight<V> {
+	// Fetching is blocking IO, so it doesn't go on the common pool
+	private static final ExecutorService IO_EXECUTOR = Executors.newCachedThreadPool(r -> {
+		var thread = new Thread(r, "packwiz-io");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	public static Executor ioExecutor() {
+		return IO_EXECUTOR;
+	}
+
+	private final Callable<V> loader;
+	private final Executor executor;
+	private final AtomicReference<CompletableFuture<V>> current = new AtomicReference<>();
+
+	public SingleFlight(Callable<V> loader) {
+		this(loader, IO_EXECUTOR);
+	}
+
+	public SingleFlight(Callable<V> loader, Executor executor) {
+		this.loader = loader;
+		this.executor = executor;
+	}
+
+	public CompletableFuture<V> get() {
+		var created = new CompletableFuture<V>();
+		while (!current.compareAndSet(null, created)) {
+			var future = current.get();
+			if (future != null) return future; // Already loaded or in flight, share it
+		}
+		executor.execute(() -> {
+			try {
+				created.complete(loader.call());
+			} catch (Throwable e) {
+				current.compareAndSet(created, null);
+				created.completeExceptionally(e);
+			}
+		});
+		return created;
+	}
+
+	/**
+	 * Forgets the current value (or in-flight future), so the next {@link #get()} loads it again
+	 */
+	public void reset() {
+		current.set(null);
+	}
+
+	/**
+	 * Forgets a value (or in-flight future) returned by {@link #get()}, unless it was already replaced by a newer one
+	 */
+	public void reset(CompletableFuture<V> future) {
+		current.compareAndSet(future, null);
+	}
+
+	/**
+	 * Waits for a future, rethrowing failures unchecked; for callers of the blocking APIs
+	 */
+	public static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException re) throw re;
+			throw new RuntimeException(e.getCause());
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package link.infra.packwiz.vanillainstaller.util;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Startup milestones, measured from JVM start: the first frame being painted, and the UI being fully built
+ * (interactive). Logged with <code>-Dpackwiz.debug=true</code>; with
+ * <code>-Dpackwiz.startup.exitWhenInteractive=true</code> they're printed to stdout as a JSON line and the installer
+ * exits, for the <code>startupTiming</code> task to track. That task passes when it launched the JVM as
+ * <code>-Dpackwiz.startup.launchedAt</code> (epoch millis), as the process start time the OS gives is only roughly
+ * accurate on Linux.
+ */
+public final class StartupTimer {
+	private StartupTimer() {}
+
+	public static final String MAIN = "main";
+	public static final String FIRST_FRAME = "firstFrame";
+	public static final String INTERACTIVE = "interactive";
+
+	private static final boolean EXIT_WHEN_INTERACTIVE = Boolean.getBoolean("packwiz.startup.exitWhenInteractive");
+	private static final Map<String, Long> marks = new LinkedHashMap<>();
+	private static long mainNanos;
+
+	/**
+	 * Call first thing in main
+	 */
+	public static synchronized void start() {
+		if (!marks.isEmpty()) return;
+		mainNanos = System.nanoTime();
+		long now = System.currentTimeMillis();
+		// Not the runtime MXBean, which would load JMX on the path being measured; if nothing says, times are from
+		// main instead
+		var launchedAt = Long.getLong("packwiz.startup.launchedAt");
+		long jvmStartMillis = launchedAt != null ? launchedAt
+			: ProcessHandle.current().info().startInstant().map(Instant::toEpochMilli).orElse(now);
+		marks.put(MAIN, Math.max(0, now - jvmStartMillis));
+	}
+
+	/**
+	 * Records a milestone the first time it's reached
+	 */
+	public static synchronized void mark(String name) {
+		if (marks.isEmpty() || marks.containsKey(name)) return;
+		long millis = marks.get(MAIN) + (System.nanoTime() - mainNanos) / 1_000_000;
+		marks.put(name, millis);
+		Debug.log("Startup: %s after %d ms", name, millis);
+
+		if (EXIT_WHEN_INTERACTIVE && name.equals(INTERACTIVE)) {
+			var json = new StringBuilder("{");
+			marks.forEach((mark, time) -> {
+				if (json.length() > 1) json.append(',');
+				json.append('"').append(mark).append("Millis\":").append(time);
+			});
+			System.out.println(json.append('}'));
+			System.exit(0);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package link.infra.packwiz.vanillainstaller.hash;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileHasherTest {
+	private static final EnumSet<HashFormat> FORMATS = EnumSet.allOf(HashFormat.class);
+
+	@TempDir
+	Path dir;
+
+	// Random bytes with plenty of whitespace, so murmur2 blocks straddle the reads and mapped windows
+	private static byte[] content(int size, long seed) {
+		var random = new Random(seed);
+		var bytes = new byte[size];
+		random.nextBytes(bytes);
+		byte[] whitespace = {9, 10, 13, 32};
+		for (int i = 0; i < size; i += 1 + random.nextInt(7)) bytes[i] = whitespace[random.nextInt(whitespace.length)];
+		return bytes;
+	}
+
+	private static Map<HashFormat, String> expected(byte[] bytes) throws NoSuchAlgorithmException {
+		var hashes = new LinkedHashMap<HashFormat, String>();
+		hashes.put(HashFormat.SHA1, HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(bytes)));
+		hashes.put(HashFormat.SHA256, HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes)));
+		hashes.put(HashFormat.SHA512, HexFormat.of().formatHex(MessageDigest.getInstance("SHA-512").digest(bytes)));
+		hashes.put(HashFormat.MD5, HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(bytes)));
+		hashes.put(HashFormat.MURMUR2, HashFormat.MURMUR2.hash(bytes));
+		return hashes;
+	}
+
+	@Test
+	void hashesTheSameWhicheverWayFilesAreRead() throws Exception {
+		// Empty, one small read, several reads through the buffer, and memory-mapped
+		int[] sizes = {0, 3, 1001, (3 << 20) + 3, (5 << 20) + 1};
+		var files = new ArrayList<Path>();
+		var expected = new LinkedHashMap<Path, Map<HashFormat, String>>();
+		for (int i = 0; i < sizes.length; i++) {
+			var bytes = content(sizes[i], i);
+			var file = dir.resolve("file" + i);
+			Files.write(file, bytes);
+			files.add(file);
+			expected.put(file, expected(bytes));
+		}
+
+		for (var file : files) {
+			assertEquals(expected.get(file), FileHasher.hash(file, FORMATS), file.toString());
+			assertEquals(expected.get(file).get(HashFormat.MURMUR2), FileHasher.hash(file, HashFormat.MURMUR2));
+		}
+
+		// Enough files for the fork-join pool to split them up
+		var many = new ArrayList<Path>();
+		for (int i = 0; i < 4; i++) many.addAll(files);
+		var all = FileHasher.hashAll(many, FORMATS);
+		for (var file : files) assertEquals(expected.get(file), all.get(file), file.toString());
+	}
+
+	@Test
+	void leavesOutUnreadableFiles() throws IOException {
+		var file = dir.resolve("present");
+		Files.writeString(file, "hello world\n");
+		var missing = dir.resolve("missing");
+		var hashes = FileHasher.hashAll(List.of(file, missing), EnumSet.of(HashFormat.MURMUR2));
+		assertEquals(Map.of(HashFormat.MURMUR2, "2824650221"), hashes.get(file));
+		assertFalse(hashes.containsKey(missing));
+	}
+}
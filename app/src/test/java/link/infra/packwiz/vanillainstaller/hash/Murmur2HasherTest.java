@@ -0,0 +1,61 @@
+package link.infra.packwiz.vanillainstaller.hash;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Murmur2HasherTest {
+	private static String murmur2(String input) {
+		return HashFormat.MURMUR2.hash(input.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void matchesKnownFingerprints() {
+		// MurmurHash2, seed 1, over the input without tab, LF, CR and space, as CurseForge computes them
+		assertEquals("1540447798", murmur2(""));
+		assertEquals("626045324", murmur2("a"));
+		assertEquals("1692487918", murmur2("ab"));
+		assertEquals("1621425345", murmur2("abc"));
+		assertEquals("3376380438", murmur2("abcd"));
+		assertEquals("3469237630", murmur2("abcde"));
+		assertEquals("1961219979", murmur2("Hello, World!"));
+		assertEquals("2824650221", murmur2("hello world\n"));
+		assertEquals("2933350625", murmur2("{\n  \"name\": \"test\",\n\t\"version\": 1\n}\r\n"));
+
+		var bytes = new byte[256];
+		for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) i;
+		assertEquals("2094645347", HashFormat.MURMUR2.hash(bytes));
+	}
+
+	@Test
+	void skipsWhitespace() {
+		// All whitespace hashes the same as nothing at all
+		assertEquals(murmur2(""), murmur2(" \t\r\n  \n"));
+		assertEquals(murmur2("abcde"), murmur2(" a\tb\r\nc d\ne "));
+		// Other control characters and vertical tabs count
+		assertNotEquals(murmur2("ab"), murmur2("a\u000bb"));
+	}
+
+	@Test
+	void countsNormalizedLength() {
+		assertEquals(0, Murmur2Hasher.countNormalized(ByteBuffer.wrap(" \t\r\n".getBytes(StandardCharsets.US_ASCII))));
+		assertEquals(5, Murmur2Hasher.countNormalized(ByteBuffer.wrap(" a\tb\r\nc d\ne ".getBytes(StandardCharsets.US_ASCII))));
+	}
+
+	@Test
+	void hashesTheSameAcrossUpdates() {
+		var bytes = "The quick brown fox\njumps over\tthe lazy dog\r\n".getBytes(StandardCharsets.US_ASCII);
+		long length = Murmur2Hasher.countNormalized(ByteBuffer.wrap(bytes));
+		var expected = HashFormat.MURMUR2.hash(bytes);
+		// Every split point, so updates end partway through a block, on whitespace, and on nothing at all
+		for (int split = 0; split <= bytes.length; split++) {
+			var hasher = new Murmur2Hasher(length);
+			hasher.update(ByteBuffer.wrap(bytes, 0, split));
+			hasher.update(ByteBuffer.wrap(bytes, split, bytes.length - split));
+			assertEquals(expected, hasher.finish(), "split at " + split);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package link.infra.packwiz.vanillainstaller.meta;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionCatalogTest {
+	private static final String HASH = "0".repeat(64);
+
+	@TempDir
+	Path dir;
+
+	private Path write(ByteBuffer encoded) throws IOException {
+		var file = dir.resolve("catalog.bin");
+		try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (encoded.hasRemaining()) channel.write(encoded);
+		}
+		return file;
+	}
+
+	@Test
+	void roundTripsThroughMappedFile() throws IOException {
+		var encoded = VersionCatalog.builder()
+			.addGroup("1.19.2", List.of("0.14.9", "0.14.9-beta", "0.14.8"), List.of("0.14.9", "0.14.8"))
+			.addGroup("1.18.2", List.of("0.14.8", "0.13.3"), List.of("0.14.8", "0.13.3"))
+			.addGroup("22w24a", List.of("0.14.8"), List.of())
+			.encode(1234L, HASH);
+		var catalog = VersionCatalog.map(write(encoded));
+
+		assertEquals(1234L, catalog.getSourceTime());
+		assertEquals(HASH, catalog.getSourceHash());
+		assertEquals(List.of("1.19.2", "1.18.2", "22w24a"), catalog.getGroups());
+		assertEquals(List.of("0.14.9", "0.14.9-beta", "0.14.8"), catalog.get("1.19.2", false));
+		assertEquals(List.of("0.14.9", "0.14.8"), catalog.get("1.19.2", true));
+		assertEquals(List.of("0.14.8", "0.13.3"), catalog.get("1.18.2", false));
+		assertEquals(List.of(), catalog.get("22w24a", true));
+		assertEquals(List.of(), catalog.get("1.17", false));
+		assertEquals(List.of(), catalog.get("1.19", false));
+		assertEquals(List.of(), catalog.get("1.19.20", false));
+		assertEquals(6, catalog.size());
+	}
+
+	@Test
+	void findsNonAsciiGroups() throws IOException {
+		// Every UTF-8 length, and keys that only differ past the ASCII range
+		var keys = List.of("a", "\u00e9", "\u00e9e", "\u20ac", "\ud83d\ude00", "z", "\u00ff", "\u0800", "\uffff");
+		var builder = VersionCatalog.builder();
+		for (var key : keys) builder.addGroup(key, List.of("v" + key), List.of());
+		var catalog = VersionCatalog.of(builder.encode(0, HASH));
+
+		for (var key : keys) assertEquals(List.of("v" + key), catalog.get(key, false), key);
+		for (var missing : List.of("", "b", "e", "\u00e9f", "\ud83d\ude01", "\u07ff", "a\udbff\udfff")) {
+			assertEquals(List.of(), catalog.get(missing, false), missing);
+		}
+	}
+
+	@Test
+	void sortsNewestFirst() throws IOException {
+		var grouped = new LinkedHashMap<String, List<String>>();
+		grouped.put("1.18.2", List.of("40.1.0", "40.1.84"));
+		grouped.put("1.19.2", List.of("43.1.1", "43.1.47", "43.0.0"));
+		var catalog = VersionCatalog.of(VersionCatalog.builder().sortNewestFirst().addKeyedGroups(grouped).encode(0, HASH));
+
+		assertEquals(List.of("1.19.2", "1.18.2"), catalog.getGroups());
+		assertEquals(List.of("43.1.47", "43.1.1", "43.0.0"), catalog.get("1.19.2", false));
+		assertEquals(List.of("40.1.84", "40.1.0"), catalog.get("1.18.2", true));
+	}
+
+	@Test
+	void rejectsOtherFormatVersions() throws IOException {
+		var encoded = VersionCatalog.builder().addGroup(VersionCatalog.UNGROUPED, List.of("1"), List.of("1")).encode(0, HASH);
+		encoded.putInt(4, encoded.getInt(4) + 1);
+		var file = write(encoded);
+		assertThrows(IOException.class, () -> VersionCatalog.map(file));
+	}
+
+	@Test
+	void rejectsGarbageHeaders() {
+		int counts = 16 + HASH.length();
+		// Each count negative, too large to fit, or large enough to overflow an int offset
+		for (int field = 0; field < 4; field++) {
+			for (int value : new int[]{-1, Integer.MIN_VALUE, 1_000_000, Integer.MAX_VALUE / 4}) {
+				var encoded = VersionCatalog.builder().addGroup("1.19.2", List.of("1", "2"), List.of("1")).encode(0, HASH);
+				encoded.putInt(counts + 4 * field, value);
+				assertThrows(IOException.class, () -> VersionCatalog.of(encoded), field + " = " + value);
+			}
+		}
+
+		// The string data size, after the string offsets
+		var encoded = VersionCatalog.builder().addGroup(VersionCatalog.UNGROUPED, List.of("1"), List.of("1")).encode(0, HASH);
+		int stringCount = encoded.getInt(counts);
+		encoded.putInt(counts + 16 + 4 * stringCount, -100);
+		assertThrows(IOException.class, () -> VersionCatalog.of(encoded));
+
+		// A valid magic and format version followed by junk
+		var garbage = VersionCatalog.builder().addGroup(VersionCatalog.UNGROUPED, List.of("1"), List.of("1")).encode(0, HASH);
+		for (int i = 8; i < garbage.limit(); i++) garbage.put(i, (byte) (i * 37));
+		assertThrows(IOException.class, () -> VersionCatalog.of(garbage));
+	}
+
+	@Test
+	void rejectsTruncatedCatalogs() {
+		var encoded = VersionCatalog.builder().addGroup(VersionCatalog.UNGROUPED, List.of("1"), List.of("1")).encode(0, HASH);
+		assertThrows(IOException.class, () -> VersionCatalog.of(encoded.limit(encoded.limit() - 1)));
+	}
+}
@@ -0,0 +1,70 @@
+package link.infra.packwiz.vanillainstaller.meta;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionKeyTest {
+	private static void assertOlder(String older, String newer) {
+		assertTrue(VersionKey.parse(older).compareTo(VersionKey.parse(newer)) < 0, older + " < " + newer);
+		assertTrue(VersionKey.parse(newer).compareTo(VersionKey.parse(older)) > 0, newer + " > " + older);
+	}
+
+	@Test
+	void preReleasesSortBelowRelease() {
+		assertOlder("1.19-alpha1", "1.19-beta1");
+		assertOlder("1.19-beta1", "1.19-pre1");
+		assertOlder("1.19-pre1", "1.19-pre2");
+		assertOlder("1.19-pre2", "1.19-rc1");
+		assertOlder("1.19-rc1", "1.19");
+		assertOlder("1.19", "1.19.1");
+		assertOlder("1.19.1-rc1", "1.19.1");
+		assertOlder("1.9", "1.10");
+		assertEquals(VersionKey.parse("1.19-pre1"), VersionKey.parse("1.19 Pre-Release 1"));
+	}
+
+	@Test
+	void snapshotsSortBelowReleases() {
+		assertOlder("22w24a", "22w24b");
+		assertOlder("22w24b", "22w25a");
+		assertOlder("21w44a", "22w03a");
+		assertOlder("22w45a", "1.0");
+		assertOlder("a1.0.5", "22w24a");
+		assertOlder("rd-132211", "1.0");
+	}
+
+	@Test
+	void buildMetadataComparesNumerically() {
+		assertOlder("1.19.2+build.9", "1.19.2+build.28");
+		assertOlder("1.19.2+build.28", "1.19.3+build.1");
+		assertOlder("0.14.8", "0.14.9+build.1");
+		assertTrue(VersionKey.parse("1.19.2+build.28").isStable());
+	}
+
+	@Test
+	void onlyPlainReleasesAreStable() {
+		assertTrue(VersionKey.parse("1.19.2").isStable());
+		assertFalse(VersionKey.parse("1.19-pre1").isStable());
+		assertFalse(VersionKey.parse("1.19-rc1").isStable());
+		assertFalse(VersionKey.parse("22w24a").isStable());
+		assertFalse(VersionKey.parse("0.14.9-beta").isStable());
+	}
+
+	@Test
+	void matchesPrefixes() {
+		assertTrue(VersionKey.parse("1.19.2").startsWith(VersionKey.parsePrefix("1.19")));
+		assertTrue(VersionKey.parse("1.19-pre1").startsWith(VersionKey.parsePrefix("1.19")));
+		assertFalse(VersionKey.parse("1.190").startsWith(VersionKey.parsePrefix("1.19")));
+		assertTrue(VersionKey.parse("1.19.2").startsWith(VersionKey.parsePrefix("1")));
+		assertFalse(VersionKey.parse("2.0").startsWith(VersionKey.parsePrefix("1")));
+		assertFalse(VersionKey.parse("22w24a").startsWith(VersionKey.parsePrefix("1")));
+	}
+
+	@Test
+	void sortsNewestFirst() {
+		assertEquals(List.of("1.19.1", "1.19", "1.19-pre1", "1.18.2", "22w24a"),
+			VersionKey.sortNewestFirst(List.of("1.19-pre1", "22w24a", "1.19.1", "1.18.2", "1.19")));
+	}
+}
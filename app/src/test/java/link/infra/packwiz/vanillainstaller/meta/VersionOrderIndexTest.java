@@ -0,0 +1,66 @@
+package link.infra.packwiz.vanillainstaller.meta;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionOrderIndexTest {
+	private static VersionOrderIndex index(Map<String, List<String>> grouped) throws IOException {
+		var encoded = VersionCatalog.builder().sortNewestFirst().addKeyedGroups(grouped).encode(0, "0".repeat(64));
+		return VersionCatalog.of(encoded).getOrderIndex();
+	}
+
+	private static VersionOrderIndex index(String... mcVersions) throws IOException {
+		var grouped = new LinkedHashMap<String, List<String>>();
+		for (var mcVersion : mcVersions) grouped.put(mcVersion, List.of("1.0.0"));
+		return index(grouped);
+	}
+
+	@Test
+	void ordersMinecraftVersions() throws IOException {
+		var grouped = new LinkedHashMap<String, List<String>>();
+		grouped.put("1.18.2", List.of("40.1.0"));
+		grouped.put("22w24a", List.of("41.0.0"));
+		grouped.put("1.19", List.of("41.1.0", "41.0.100"));
+		grouped.put("1.19-pre1", List.of("41.0.1"));
+		grouped.put("1.19.2", List.of("43.1.1"));
+		grouped.put("1.17", List.of()); // No loader versions, so not listed
+		var index = index(grouped);
+
+		assertEquals(List.of("1.19.2", "1.19", "1.19-pre1", "1.18.2", "22w24a"), index.getMinecraftVersions(false));
+		assertEquals(List.of("1.19.2", "1.19", "1.18.2"), index.getMinecraftVersions(true));
+		assertEquals("1.19.2", index.getLatestMinecraftVersion(false));
+		assertEquals("41.1.0", index.getLatestLoaderVersion("1.19", false));
+		assertNull(index.getLatestLoaderVersion("1.17", false));
+	}
+
+	@Test
+	void findsVersionsInALine() throws IOException {
+		var index = index("1.18.2", "1.19", "1.19-pre1", "1.19.2", "1.190", "2.0", "22w24a");
+
+		assertEquals(List.of("1.19.2", "1.19", "1.19-pre1"), index.getMinecraftVersions("1.19.x", false));
+		assertEquals(List.of("1.19.2", "1.19"), index.getMinecraftVersions("1.19.*", true));
+		assertEquals(List.of("1.19.2", "1.19", "1.19-pre1"), index.getMinecraftVersions("1.19", false));
+		assertEquals(List.of("1.190", "1.19.2", "1.19", "1.19-pre1", "1.18.2"), index.getMinecraftVersions("1.x", false));
+		assertEquals(List.of("2.0"), index.getMinecraftVersions("2.x", false));
+		assertEquals(List.of(), index.getMinecraftVersions("1.20.x", false));
+		assertEquals(List.of("1.19.2", "1.19", "1.19-pre1"), List.copyOf(index.getLoaderVersions("1.19.x", false).keySet()));
+	}
+
+	@Test
+	void findsNewestCommonVersion() throws IOException {
+		var fabric = index("1.18.2", "1.19", "1.19.1", "1.19.2", "22w24a");
+		var forge = index("1.18.2", "1.19", "1.19.2-pre1");
+		var quilt = index("1.18.2");
+
+		assertEquals("1.19", VersionOrderIndex.getNewestCommonMinecraftVersion(List.of(fabric, forge), true));
+		assertEquals("1.18.2", VersionOrderIndex.getNewestCommonMinecraftVersion(List.of(fabric, forge, quilt), true));
+		assertNull(VersionOrderIndex.getNewestCommonMinecraftVersion(List.of(fabric, index("1.17")), true));
+		assertNull(VersionOrderIndex.getNewestCommonMinecraftVersion(List.of(), true));
+	}
+}
@@ -0,0 +1,112 @@
+package link.infra.packwiz.vanillainstaller.net;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitHubSourceTest {
+	private static final String SHA = "0123456789abcdef0123456789abcdef01234567";
+	private static final String PACK = "name = \"Test\"\n";
+
+	@TempDir
+	Path cacheDir;
+
+	private HttpServer server;
+	private final AtomicInteger commitRequests = new AtomicInteger();
+	private final AtomicInteger rawRequests = new AtomicInteger();
+	private URI apiBase;
+	private URI rawBase;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/api/repos/owner/repo/commits/main", exchange -> {
+			commitRequests.incrementAndGet();
+			respond(exchange, "application/vnd.github.sha".equals(exchange.getRequestHeaders().getFirst("Accept")) ? 200 : 415, SHA);
+		});
+		server.createContext("/raw/owner/repo/" + SHA + "/pack.toml", exchange -> {
+			rawRequests.incrementAndGet();
+			respond(exchange, 200, PACK);
+		});
+		server.start();
+		var base = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+		apiBase = URI.create(base + "/api/");
+		rawBase = URI.create(base + "/raw/");
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		var bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (var out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static String read(InputStream in) throws IOException {
+		try (in) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	void resolvesRefToCommit() throws IOException {
+		var source = new GitHubSource(apiBase, rawBase, cacheDir);
+		var location = GitHubSource.parse(URI.create("github://owner/repo/main/pack.toml"));
+		assertNotNull(location);
+		assertEquals(SHA, source.resolveCommit(location));
+		assertEquals(SHA, source.resolveCommit(location));
+		assertEquals(1, commitRequests.get());
+	}
+
+	@Test
+	void reusesCachedFiles() throws IOException {
+		var source = new GitHubSource(apiBase, rawBase, cacheDir);
+		assertEquals(PACK, read(source.open(URI.create("github://owner/repo/main/pack.toml"))));
+		assertEquals(PACK, read(source.open(URI.create("github://owner/repo/main/pack.toml"))));
+		assertEquals(1, commitRequests.get());
+		assertEquals(1, rawRequests.get());
+
+		// A new session still has the commit's files on disk
+		var next = new GitHubSource(apiBase, rawBase, cacheDir);
+		assertEquals(PACK, read(next.open(URI.create("github://owner/repo/" + SHA + "/pack.toml"))));
+		assertEquals(1, commitRequests.get());
+		assertEquals(1, rawRequests.get());
+	}
+
+	@Test
+	void rejectsTraversal() {
+		assertNull(GitHubSource.parse(URI.create("github://owner/repo/main/../pack.toml")));
+		assertNull(GitHubSource.parse(URI.create("github://owner/repo/main/mods/../../pack.toml")));
+		assertNull(GitHubSource.parse(URI.create("github://owner/repo/main/%2e%2e/pack.toml")));
+		assertNull(GitHubSource.parse(URI.create("github://owner/repo/main/%2E%2E/pack.toml")));
+		assertNull(GitHubSource.parse(URI.create("github://owner/repo/main/mods%2f..%2fpack.toml")));
+		assertFalse(GitHubSource.isValid("github://owner/repo/main/%zz/pack.toml"));
+		assertNotNull(GitHubSource.parse(URI.create("github://owner/repo/main/mods/a%20b.pw.toml")));
+	}
+
+	@Test
+	void refusesToOpenTraversal() {
+		var source = new GitHubSource(apiBase, rawBase, cacheDir);
+		assertThrows(IOException.class, () -> source.open(URI.create("github://owner/repo/main/%2e%2e/%2e%2e/pack.toml")));
+		assertEquals(0, commitRequests.get());
+	}
+}
@@ -0,0 +1,51 @@
+plugins {
+	java
+	id("me.champeau.jmh") version "0.6.6"
+}
+
+repositories {
+	mavenCentral()
+
+	maven {
+		name = "Fabric"
+		url = uri("https://maven.fabricmc.net/")
+	}
+}
+
+dependencies {
+	jmh(project(":app"))
+	// Only used by the baselines that reproduce the old parsing code
+	jmh("com.google.code.gson:gson:2.9.0")
+}
+
+jmh {
+	// Allocation rate (gc) and peak heap per iteration, next to throughput
+	profilers.set(listOf("gc", "link.infra.packwiz.vanillainstaller.benchmarks.PeakHeapProfiler"))
+	warmupIterations.set(3)
+	iterations.set(5)
+	fork.set(1)
+	resultFormat.set("JSON")
+	// e.g. ./gradlew :benchmarks:jmh -Pjmh.includes=Forge
+	if (project.hasProperty("jmh.includes")) {
+		includes.set(listOf(project.property("jmh.includes").toString()))
+	}
+}
+
+// Replaces the fixtures with the current live API responses
+tasks.register("recordFixtures") {
+	group = "benchmark"
+	description = "Downloads fresh metadata fixtures for the benchmarks"
+	doLast {
+		val fixtures = file("src/jmh/resources/fixtures")
+		mapOf(
+			"fabric-game.json" to "https://meta.fabricmc.net/v2/versions/game",
+			"fabric-yarn.json" to "https://meta.fabricmc.net/v2/versions/yarn",
+			"quilt-mappings.json" to "https://meta.quiltmc.org/v3/versions/quilt-mappings",
+			"forge-maven-metadata.xml" to "https://maven.minecraftforge.net/net/minecraftforge/forge/maven-metadata.xml"
+		).forEach { (name, url) ->
+			uri(url).toURL().openStream().use { input ->
+				fixtures.resolve(name).outputStream().use { input.copyTo(it) }
+			}
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package link.infra.packwiz.vanillainstaller.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Recorded API responses the benchmarks parse, loaded once so I/O isn't measured
+ */
+final class Fixtures {
+	private Fixtures() {}
+
+	static byte[] load(String name) {
+		try (var in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+			if (in == null) throw new IllegalStateException("Missing fixture " + name);
+			return in.readAllBytes();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
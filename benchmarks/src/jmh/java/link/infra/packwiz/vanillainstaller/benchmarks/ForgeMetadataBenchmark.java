@@ -0,0 +1,84 @@
+package link.infra.packwiz.vanillainstaller.benchmarks;
+
+import link.infra.packwiz.vanillainstaller.meta.ForgeVersionIndex;
+import org.apache.commons.io.input.BOMInputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Forge's maven-metadata.xml: the streaming index against the DOM + regex code it replaced
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ForgeMetadataBenchmark {
+	private static final Pattern VERSION_REG = Pattern.compile("(.*?)-(.*)", Pattern.CASE_INSENSITIVE);
+
+	private byte[] metadata;
+	private ForgeVersionIndex index;
+	private List<String> flatVersions;
+	private DocumentBuilderFactory dbf;
+
+	@Setup
+	public void setup() throws Exception {
+		metadata = Fixtures.load("forge-maven-metadata.xml");
+		index = ForgeVersionIndex.parse(new ByteArrayInputStream(metadata));
+		dbf = DocumentBuilderFactory.newInstance();
+		dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+		flatVersions = parseDom();
+	}
+
+	@Benchmark
+	public ForgeVersionIndex parseStax() throws Exception {
+		return ForgeVersionIndex.parse(new ByteArrayInputStream(metadata));
+	}
+
+	@Benchmark
+	public List<String> parseDomBaseline() throws Exception {
+		return parseDom();
+	}
+
+	@Benchmark
+	public void lookupIndex(Blackhole blackhole) {
+		for (var mcVersion : index.getMinecraftVersions()) {
+			blackhole.consume(index.getForgeVersions(mcVersion));
+		}
+	}
+
+	@Benchmark
+	public void lookupRegexBaseline(Blackhole blackhole) {
+		var mcVersions = flatVersions.stream()
+			.map(VERSION_REG::matcher)
+			.filter(Matcher::find)
+			.map(e -> e.group(1))
+			.distinct()
+			.toList();
+		for (var mcVersion : mcVersions) {
+			blackhole.consume(flatVersions.stream()
+				.map(VERSION_REG::matcher)
+				.filter(e -> e.find() && e.group(1).equals(mcVersion))
+				.map(e -> e.group(2))
+				.toList());
+		}
+	}
+
+	private List<String> parseDom() throws Exception {
+		var doc = dbf.newDocumentBuilder().parse(new BOMInputStream(new ByteArrayInputStream(metadata)));
+		doc.getDocumentElement().normalize();
+		var elements = doc.getElementsByTagName("version");
+		var versions = new ArrayList<String>();
+		for (int i = 0; i < elements.getLength(); i++) {
+			versions.add(elements.item(i).getTextContent());
+		}
+		return versions;
+	}
+}
@@ -0,0 +1,44 @@
+package link.infra.packwiz.vanillainstaller.benchmarks;
+
+import link.infra.packwiz.vanillainstaller.meta.PackMetadataRetriever;
+import link.infra.packwiz.vanillainstaller.util.PathUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * pack.toml parsing and installation name handling, both run every time the pack URL or name changes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PackParsingBenchmark {
+	private static final String[] NAMES = {
+		"Example Pack",
+		"All the Mods 7 - To the Sky",
+		"  Create: Above & Beyond [1.19] ",
+		"my_pack/with\\odd:chars?*",
+		"\u00dcn\u00efc\u00f6d\u00e9 P\u00e2ck \u2014 \u00c9dition"
+	};
+
+	private byte[] packToml;
+
+	@Setup
+	public void setup() {
+		packToml = Fixtures.load("pack.toml");
+	}
+
+	@Benchmark
+	public PackMetadataRetriever.Data parsePackToml() {
+		return PackMetadataRetriever.parse(new ByteArrayInputStream(packToml));
+	}
+
+	@Benchmark
+	public void slugify(Blackhole blackhole) {
+		for (var name : NAMES) {
+			blackhole.consume(PathUtils.slugify(name));
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package link.infra.packwiz.vanillainstaller.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import link.infra.packwiz.vanillainstaller.meta.VersionList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fabric/Quilt meta API responses: the streaming {@link VersionList} readers and lookups, against the Gson object
+ * binding + stream filtering they replaced
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VersionListBenchmark {
+	private static final Gson GSON = new Gson();
+
+	private byte[] game;
+	private byte[] yarn;
+	private byte[] quiltMappings;
+	private List<String> gameVersions;
+	private Map<String, VersionList> yarnGrouped;
+	private List<YarnVersion> yarnFlat;
+
+	@Setup
+	public void setup() throws Exception {
+		game = Fixtures.load("fabric-game.json");
+		yarn = Fixtures.load("fabric-yarn.json");
+		quiltMappings = Fixtures.load("quilt-mappings.json");
+		gameVersions = VersionList.read(reader(game)).get(false);
+		yarnGrouped = VersionList.readGrouped(reader(yarn));
+		yarnFlat = GSON.fromJson(reader(yarn), new TypeToken<List<YarnVersion>>(){}.getType());
+	}
+
+	@Benchmark
+	public VersionList readFabricGame() throws Exception {
+		return VersionList.read(reader(game));
+	}
+
+	@Benchmark
+	public Map<String, VersionList> readFabricYarn() throws Exception {
+		return VersionList.readGrouped(reader(yarn));
+	}
+
+	@Benchmark
+	public Map<String, VersionList> readQuiltMappings() throws Exception {
+		return VersionList.readGrouped(reader(quiltMappings));
+	}
+
+	@Benchmark
+	public List<YarnVersion> readFabricYarnGsonBaseline() {
+		return GSON.fromJson(reader(yarn), new TypeToken<List<YarnVersion>>(){}.getType());
+	}
+
+	@Benchmark
+	public void filterGrouped(Blackhole blackhole) {
+		for (var mcVersion : gameVersions) {
+			var versions = yarnGrouped.get(mcVersion);
+			blackhole.consume(versions == null ? List.of() : versions.get(true));
+		}
+	}
+
+	@Benchmark
+	public void filterStreamBaseline(Blackhole blackhole) {
+		for (var mcVersion : gameVersions) {
+			blackhole.consume(yarnFlat.stream()
+				.filter(v -> v.gameVersion.equals(mcVersion) && v.stable)
+				.map(v -> v.version)
+				.toList());
+		}
+	}
+
+	private static Reader reader(byte[] bytes) {
+		return new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+	}
+
+	public static class YarnVersion {
+		String version;
+		boolean stable;
+		String separator;
+		int build;
+		String maven;
+		String gameVersion;
+	}
+}
@@ -1,2 +1,3 @@
 rootProject.name = "packwiz-vanilla-installer"
 include("app")
+include("benchmarks")